@@ -0,0 +1,35 @@
+package com.cube.storm.content.benchmark;
+
+import com.cube.storm.ContentSettings;
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.factory.FileFactory;
+import com.cube.storm.content.lib.helper.ManifestCache;
+import com.cube.storm.content.lib.manager.LegacyDeploymentManager;
+import com.cube.storm.content.lib.parser.BundleBuilder;
+import com.cube.storm.content.lib.resolver.CacheResolver;
+import com.cube.storm.util.lib.resolver.FileResolver;
+
+import java.io.File;
+
+/**
+ * Configures the stand-in {@link ContentSettings} the same way as the defaults of the library's
+ * {@code ContentSettings.Builder}
+ */
+public class BenchmarkSettings
+{
+	/**
+	 * @param contentPath The directory used as the deployed content
+	 */
+	public static void install(File contentPath)
+	{
+		ContentSettings settings = ContentSettings.getInstance();
+		settings.setStoragePath(contentPath.getAbsolutePath());
+		settings.setDeploymentManager(new LegacyDeploymentManager());
+		settings.setBundleBuilder(new BundleBuilder(){});
+		settings.setFileFactory(new FileFactory(){});
+		settings.getUriResolvers().put(Constants.URI_CACHE, new CacheResolver());
+		settings.getUriResolvers().put("file", new FileResolver());
+
+		ManifestCache.getInstance().invalidate();
+	}
+}
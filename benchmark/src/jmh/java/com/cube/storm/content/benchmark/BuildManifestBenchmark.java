@@ -0,0 +1,58 @@
+package com.cube.storm.content.benchmark;
+
+import android.net.Uri;
+
+import com.cube.storm.ContentSettings;
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.parser.BundleBuilder;
+import com.cube.storm.content.model.Manifest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the bundle manifest with {@link BundleBuilder#buildManifest(Uri)}, which reads the file through the
+ * {@code file://} resolver, and with {@link BundleBuilder#buildManifest(byte[])} from memory
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BuildManifestBenchmark
+{
+	private BundleBuilder builder;
+	private Uri manifestUri;
+	private byte[] manifestBytes;
+
+	@Setup(Level.Trial)
+	public void setUp(BundleState state) throws IOException
+	{
+		File manifest = new File(state.getContentPath(), Constants.FILE_MANIFEST);
+
+		builder = ContentSettings.getInstance().getBundleBuilder();
+		manifestUri = Uri.fromFile(manifest);
+		manifestBytes = Files.readAllBytes(manifest.toPath());
+	}
+
+	@Benchmark
+	public Manifest buildManifestFromUri()
+	{
+		return builder.buildManifest(manifestUri);
+	}
+
+	@Benchmark
+	public Manifest buildManifestFromBytes()
+	{
+		return builder.buildManifest(manifestBytes);
+	}
+}
@@ -0,0 +1,35 @@
+package com.cube.storm.content.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The synthetic bundle a benchmark runs against, which is also installed as the deployed content. Every benchmark is
+ * run once for each {@link SyntheticBundle.Size}.
+ */
+@State(Scope.Benchmark)
+public class BundleState
+{
+	@Param public SyntheticBundle.Size size;
+
+	public SyntheticBundle bundle;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		bundle = SyntheticBundle.get(size);
+		bundle.getScratchPath().mkdirs();
+		BenchmarkSettings.install(bundle.getContentPath());
+	}
+
+	public File getContentPath()
+	{
+		return bundle.getContentPath();
+	}
+}
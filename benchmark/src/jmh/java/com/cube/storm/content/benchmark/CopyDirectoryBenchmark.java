@@ -0,0 +1,41 @@
+package com.cube.storm.content.benchmark;
+
+import com.cube.storm.content.lib.helper.FileHelper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies the bundle into an empty directory with {@link FileHelper#copyDirectory(File, File)}, which is how
+ * {@code LegacyDeploymentManager} deploys a bundle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CopyDirectoryBenchmark
+{
+	private File target;
+
+	@Setup(Level.Invocation)
+	public void clean(BundleState state)
+	{
+		target = new File(state.bundle.getScratchPath(), "copy");
+		FileHelper.deleteRecursive(target);
+	}
+
+	@Benchmark
+	public void copyDirectory(BundleState state) throws IOException
+	{
+		FileHelper.copyDirectory(state.getContentPath(), target);
+	}
+}
@@ -0,0 +1,167 @@
+package com.cube.storm.content.benchmark;
+
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.codec.BundleCodec;
+import com.cube.storm.content.lib.codec.GzipBundleCodec;
+import com.cube.storm.content.lib.codec.ZstdBundleCodec;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decodes the bundle archive compressed with each {@link BundleCodec} without extracting it, to compare the decode
+ * throughput of the codecs. The zstd dictionary is trained on the page JSON of the bundle. The {@code decoded} counter
+ * reports the throughput in uncompressed bytes per second, and the size of each archive is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DecodeBenchmark
+{
+	private static final int ZSTD_LEVEL = 12;
+	private static final int DICTIONARY_SIZE = 112640;
+	private static final int MAX_SAMPLE_BYTES = 16 * 1024 * 1024;
+
+	@Param({"gzip", "zstd", "zstd-dictionary"}) public String codec;
+
+	private BundleCodec bundleCodec;
+	private byte[] compressed;
+
+	@Setup(Level.Trial)
+	public void setUp(BundleState state) throws IOException
+	{
+		byte[] tar = readFully(new GZIPInputStream(new FileInputStream(state.bundle.getArchive())));
+
+		switch (codec)
+		{
+			case "gzip":
+			{
+				bundleCodec = new GzipBundleCodec();
+				compressed = Files.readAllBytes(state.bundle.getArchive().toPath());
+				break;
+			}
+			case "zstd":
+			{
+				bundleCodec = new ZstdBundleCodec();
+				compressed = compressZstd(tar, null);
+				break;
+			}
+			default:
+			{
+				byte[] dictionary = trainDictionary(state);
+				bundleCodec = new ZstdBundleCodec(dictionary);
+				compressed = compressZstd(tar, dictionary);
+			}
+		}
+
+		System.out.println(String.format("%s archive is %d bytes, %.1f%% of the %d byte tar", codec, compressed.length, compressed.length * 100.0 / tar.length, tar.length));
+	}
+
+	@Benchmark
+	public long decode(DecodedBytes counter) throws IOException
+	{
+		long total = 0;
+		byte[] buffer = new byte[8192];
+
+		try (InputStream stream = bundleCodec.decode(new ByteArrayInputStream(compressed)))
+		{
+			int count;
+			while ((count = stream.read(buffer)) != -1)
+			{
+				total += count;
+			}
+		}
+
+		counter.decoded += total;
+		return total;
+	}
+
+	/**
+	 * Uncompressed bytes decoded by each thread, reported as a rate
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class DecodedBytes
+	{
+		public long decoded;
+
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			decoded = 0;
+		}
+	}
+
+	private static byte[] trainDictionary(BundleState state) throws IOException
+	{
+		ZstdDictTrainer trainer = new ZstdDictTrainer(MAX_SAMPLE_BYTES, DICTIONARY_SIZE);
+
+		for (String path : state.bundle.getFiles())
+		{
+			if (path.startsWith(Constants.FOLDER_PAGES + "/") && !trainer.addSample(Files.readAllBytes(new File(state.getContentPath(), path).toPath())))
+			{
+				break;
+			}
+		}
+
+		return trainer.trainSamples();
+	}
+
+	private static byte[] compressZstd(byte[] data, byte[] dictionary) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+
+		try (ZstdOutputStream stream = new ZstdOutputStream(out, ZSTD_LEVEL))
+		{
+			if (dictionary != null)
+			{
+				stream.setDict(dictionary);
+			}
+
+			stream.write(data);
+		}
+
+		return out.toByteArray();
+	}
+
+	private static byte[] readFully(InputStream stream) throws IOException
+	{
+		try
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int count;
+
+			while ((count = stream.read(buffer)) != -1)
+			{
+				out.write(buffer, 0, count);
+			}
+
+			return out.toByteArray();
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package com.cube.storm.content.benchmark;
+
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.helper.BundleHelper;
+import com.cube.storm.content.lib.helper.ManifestIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes the files that are not in the manifest from the bundle with {@link BundleHelper#deleteUnexpectedFiles(File)},
+ * reading the expected files from either the {@link ManifestIndex} or {@code manifest.json}. One unexpected file is
+ * added for every hundred files in the bundle before each call, every tenth of them in an unexpected subdirectory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DeleteUnexpectedFilesBenchmark
+{
+	private static final String[] FOLDERS = {Constants.FOLDER_PAGES, Constants.FOLDER_CONTENT, Constants.FOLDER_LANGUAGES, Constants.FOLDER_DATA};
+
+	@Param({"true", "false"}) public boolean indexed;
+
+	@Setup(Level.Trial)
+	public void setUp(BundleState state)
+	{
+		if (indexed)
+		{
+			ManifestIndex.build(state.getContentPath());
+		}
+		else
+		{
+			new File(state.getContentPath(), Constants.FILE_MANIFEST_INDEX).delete();
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void addUnexpectedFiles(BundleState state) throws IOException
+	{
+		int count = state.bundle.getFileCount() / 100;
+
+		for (int index = 0; index < count; index++)
+		{
+			File folder = new File(state.getContentPath(), FOLDERS[index % FOLDERS.length]);
+
+			if (index % 10 == 0)
+			{
+				folder = new File(folder, "unexpected-directory-" + index);
+				folder.mkdir();
+			}
+
+			new File(folder, "unexpected-" + index).createNewFile();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown(BundleState state)
+	{
+		new File(state.getContentPath(), Constants.FILE_MANIFEST_INDEX).delete();
+	}
+
+	@Benchmark
+	public void deleteUnexpectedFiles(BundleState state) throws Exception
+	{
+		BundleHelper.deleteUnexpectedFiles(state.getContentPath());
+	}
+}
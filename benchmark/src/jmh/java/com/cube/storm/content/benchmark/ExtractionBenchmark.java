@@ -0,0 +1,47 @@
+package com.cube.storm.content.benchmark;
+
+import com.cube.storm.content.lib.handler.TarExtractor;
+import com.cube.storm.content.lib.helper.FileHelper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracts the bundle archive into an empty directory, which is what
+ * {@code GZIPTarCacheResponseHandler#onSuccess()} does with a downloaded bundle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExtractionBenchmark
+{
+	private File target;
+
+	@Setup(Level.Invocation)
+	public void clean(BundleState state)
+	{
+		target = new File(state.bundle.getScratchPath(), "extracted");
+		FileHelper.deleteRecursive(target);
+		target.mkdirs();
+	}
+
+	@Benchmark
+	public long extract(BundleState state) throws IOException
+	{
+		TarExtractor extractor = new TarExtractor(target.getAbsolutePath());
+		extractor.extract(new FileInputStream(state.bundle.getArchive()));
+
+		return extractor.getTotalExtracted();
+	}
+}
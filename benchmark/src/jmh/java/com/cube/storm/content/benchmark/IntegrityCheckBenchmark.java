@@ -0,0 +1,63 @@
+package com.cube.storm.content.benchmark;
+
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.helper.BundleHelper;
+import com.cube.storm.content.lib.helper.ManifestIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes every file of the bundle with {@link BundleHelper#integrityCheck(String)}, reading the hashes from either
+ * the {@link ManifestIndex} or {@code manifest.json}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IntegrityCheckBenchmark
+{
+	@Param({"true", "false"}) public boolean indexed;
+
+	@Setup(Level.Trial)
+	public void setUp(BundleState state)
+	{
+		if (indexed)
+		{
+			ManifestIndex.build(state.getContentPath());
+		}
+		else
+		{
+			new File(state.getContentPath(), Constants.FILE_MANIFEST_INDEX).delete();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown(BundleState state)
+	{
+		new File(state.getContentPath(), Constants.FILE_MANIFEST_INDEX).delete();
+	}
+
+	@Benchmark
+	public boolean integrityCheck(BundleState state)
+	{
+		boolean correct = BundleHelper.integrityCheck(state.getContentPath().getAbsolutePath());
+
+		if (!correct)
+		{
+			throw new IllegalStateException("Synthetic bundle failed the integrity check and was deleted");
+		}
+
+		return correct;
+	}
+}
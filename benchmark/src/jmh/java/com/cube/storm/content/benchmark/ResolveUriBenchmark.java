@@ -0,0 +1,95 @@
+package com.cube.storm.content.benchmark;
+
+import android.net.Uri;
+
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.helper.ManifestCache;
+import com.cube.storm.content.lib.helper.ManifestIndex;
+import com.cube.storm.content.lib.resolver.CacheResolver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves {@code cache://} Uris of the deployed bundle with {@link CacheResolver#resolveUri(Uri)}, in a fixed random
+ * order. One in ten Uris is not in the bundle, and falls back to {@code assets://}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResolveUriBenchmark
+{
+	private final CacheResolver cachedResolver = new CacheResolver();
+	private final CacheResolver uncachedResolver = new CacheResolver(0);
+	private Uri[] uris;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp(BundleState state)
+	{
+		ManifestIndex.build(state.getContentPath());
+		ManifestCache.getInstance().invalidate();
+
+		List<Uri> list = new ArrayList<>();
+		List<String> files = state.bundle.getFiles();
+
+		for (int index = 0; index < files.size(); index++)
+		{
+			list.add(Uri.parse("cache://" + files.get(index)));
+
+			if (index % 9 == 0)
+			{
+				list.add(Uri.parse("cache://" + Constants.FOLDER_PAGES + "/missing-" + index + ".json"));
+			}
+		}
+
+		Collections.shuffle(list, new Random(0));
+		uris = list.toArray(new Uri[0]);
+
+		// every Uri is resolved once, so the cached resolver is measured once it is full
+		for (Uri uri : uris)
+		{
+			cachedResolver.resolveUri(uri);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown(BundleState state)
+	{
+		new File(state.getContentPath(), Constants.FILE_MANIFEST_INDEX).delete();
+		ManifestCache.getInstance().invalidate();
+	}
+
+	@Benchmark
+	public Uri resolveUriCached()
+	{
+		return cachedResolver.resolveUri(nextUri());
+	}
+
+	@Benchmark
+	public Uri resolveUriUncached()
+	{
+		return uncachedResolver.resolveUri(nextUri());
+	}
+
+	private Uri nextUri()
+	{
+		Uri uri = uris[next];
+		next = next + 1 == uris.length ? 0 : next + 1;
+		return uri;
+	}
+}
@@ -0,0 +1,337 @@
+package com.cube.storm.content.benchmark;
+
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.helper.FileHelper;
+import com.google.gson.stream.JsonWriter;
+
+import org.kamranzafar.jtar.TarEntry;
+import org.kamranzafar.jtar.TarOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates a fixed synthetic bundle for each {@link Size}, and its {@code tar.gz} archive, into the directory given
+ * by the {@code benchmark.bundles} system property.
+ * <p/>
+ * Every run generates byte for byte the same bundles, so results of different runs can be compared. Half of the files
+ * are json pages, which compress well, and the other half are random binary files, like the images in the
+ * {@code content} folder. A bundle is only generated once, and reused by later runs.
+ */
+public class SyntheticBundle
+{
+	private static final String[] FOLDERS = {Constants.FOLDER_PAGES, Constants.FOLDER_CONTENT, Constants.FOLDER_LANGUAGES, Constants.FOLDER_DATA};
+	private static final String FILE_COMPLETE = ".complete";
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private static final long TIMESTAMP = 1600000000L;
+
+	public enum Size
+	{
+		FILES_1K_10MB(1000, 10L * 1024 * 1024),
+		FILES_10K_100MB(10000, 100L * 1024 * 1024),
+		FILES_50K_500MB(50000, 500L * 1024 * 1024);
+
+		private final int fileCount;
+		private final long totalBytes;
+
+		Size(int fileCount, long totalBytes)
+		{
+			this.fileCount = fileCount;
+			this.totalBytes = totalBytes;
+		}
+	}
+
+	private final Size size;
+	private final File root;
+
+	private SyntheticBundle(Size size, File root)
+	{
+		this.size = size;
+		this.root = root;
+	}
+
+	/**
+	 * Gets the bundle of a size, generating it first if needed
+	 *
+	 * @param size The size of the bundle
+	 *
+	 * @return The bundle
+	 *
+	 * @throws IOException if the bundle could not be generated
+	 */
+	public static synchronized SyntheticBundle get(Size size) throws IOException
+	{
+		File root = new File(System.getProperty("benchmark.bundles", "build/bundles"), size.name().toLowerCase());
+		SyntheticBundle bundle = new SyntheticBundle(size, root);
+
+		if (!new File(root, FILE_COMPLETE).exists())
+		{
+			FileHelper.deleteRecursive(root);
+			bundle.generate();
+		}
+
+		return bundle;
+	}
+
+	/**
+	 * @return The extracted bundle, with a {@code manifest.json} but without a {@code manifest.idx}
+	 */
+	public File getContentPath()
+	{
+		return new File(root, "bundle");
+	}
+
+	/**
+	 * @return The gzipped tar archive of {@link #getContentPath()}
+	 */
+	public File getArchive()
+	{
+		return new File(root, "bundle.tar.gz");
+	}
+
+	/**
+	 * @return A directory next to the bundle which benchmarks can write to
+	 */
+	public File getScratchPath()
+	{
+		return new File(root, "scratch");
+	}
+
+	/**
+	 * @return The relative path of every file in the manifest, for example {@code pages/1.json}
+	 */
+	public List<String> getFiles()
+	{
+		List<String> files = new ArrayList<>(size.fileCount);
+
+		for (int index = 0; index < size.fileCount; index++)
+		{
+			files.add(getPath(index));
+		}
+
+		return files;
+	}
+
+	public int getFileCount()
+	{
+		return size.fileCount;
+	}
+
+	private void generate() throws IOException
+	{
+		File contentPath = getContentPath();
+		Random random = new Random(size.ordinal());
+		long averageBytes = size.totalBytes / size.fileCount;
+		String[] hashes = new String[size.fileCount];
+		byte[] data = new byte[(int)(averageBytes * 3 / 2) + 1];
+
+		for (String folder : FOLDERS)
+		{
+			new File(contentPath, folder).mkdirs();
+		}
+
+		for (int index = 0; index < size.fileCount; index++)
+		{
+			// between half and one and a half times the average, so the total is close to the size of the bundle
+			int length = (int)(averageBytes / 2 + (long)(random.nextDouble() * averageBytes));
+
+			if (index % 2 == 0)
+			{
+				fillJson(random, data, length);
+			}
+			else
+			{
+				random.nextBytes(data);
+			}
+
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(new File(contentPath, getPath(index))), 8192))
+			{
+				out.write(data, 0, length);
+			}
+
+			hashes[index] = sha1(data, length);
+		}
+
+		writeManifest(new File(contentPath, Constants.FILE_MANIFEST), hashes);
+		writeFile(new File(contentPath, Constants.FILE_ENTRY_POINT), "{\"id\":\"app\",\"vectors\":[],\"map\":[]}");
+		writeArchive(contentPath, getArchive());
+		getScratchPath().mkdirs();
+
+		new File(root, FILE_COMPLETE).createNewFile();
+	}
+
+	/**
+	 * Files are spread across the folders of the bundle in roughly the same proportions as a real bundle
+	 */
+	private String getPath(int index)
+	{
+		String folder;
+
+		if (index % 2 == 1)
+		{
+			folder = Constants.FOLDER_CONTENT;
+		}
+		else if (index < 10)
+		{
+			folder = Constants.FOLDER_LANGUAGES;
+		}
+		else if (index % 50 == 0)
+		{
+			folder = Constants.FOLDER_DATA;
+		}
+		else
+		{
+			folder = Constants.FOLDER_PAGES;
+		}
+
+		return folder + "/" + index + (index % 2 == 1 ? ".png" : ".json");
+	}
+
+	private void writeManifest(File target, String[] hashes) throws IOException
+	{
+		try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(target), 8192), StandardCharsets.UTF_8)))
+		{
+			writer.beginObject();
+			writer.name("timestamp").value(TIMESTAMP);
+
+			for (String folder : FOLDERS)
+			{
+				writer.name(folder).beginArray();
+
+				for (int index = 0; index < size.fileCount; index++)
+				{
+					String path = getPath(index);
+
+					if (path.startsWith(folder + "/"))
+					{
+						writer.beginObject();
+						writer.name("src").value(path.substring(folder.length() + 1));
+						writer.name("hash").value(hashes[index]);
+						writer.endObject();
+					}
+				}
+
+				writer.endArray();
+			}
+
+			writer.endObject();
+		}
+	}
+
+	private static void writeArchive(File contentPath, File target) throws IOException
+	{
+		byte[] buffer = new byte[8192];
+
+		try (TarOutputStream out = new TarOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(target), 8192), 8192)))
+		{
+			for (File file : listFiles(contentPath))
+			{
+				String name = contentPath.toURI().relativize(file.toURI()).getPath();
+				out.putNextEntry(new TarEntry(file, name));
+
+				if (file.isFile())
+				{
+					try (InputStream in = new FileInputStream(file))
+					{
+						int count;
+						while ((count = in.read(buffer)) != -1)
+						{
+							out.write(buffer, 0, count);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static List<File> listFiles(File directory)
+	{
+		List<File> files = new ArrayList<>();
+		File[] children = directory.listFiles();
+
+		if (children != null)
+		{
+			// sorted so every run writes the entries in the same order
+			Arrays.sort(children);
+
+			for (File child : children)
+			{
+				files.add(child);
+
+				if (child.isDirectory())
+				{
+					files.addAll(listFiles(child));
+				}
+			}
+		}
+
+		return files;
+	}
+
+	private static void writeFile(File target, String contents) throws IOException
+	{
+		try (OutputStream out = new FileOutputStream(target))
+		{
+			out.write(contents.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Fills the start of {@param data} with a json object of exactly {@param length} bytes
+	 */
+	private static void fillJson(Random random, byte[] data, int length)
+	{
+		String[] words = {"storm", "lightning", "content", "page", "view", "list", "item", "title", "description", "image"};
+		StringBuilder json = new StringBuilder(length + 64);
+		json.append("{\"text\":\"");
+
+		while (json.length() < length - 2)
+		{
+			json.append(words[random.nextInt(words.length)]).append(' ');
+		}
+
+		json.setLength(Math.max(length - 2, 9));
+		json.append("\"}");
+
+		byte[] bytes = json.toString().getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(bytes, 0, data, 0, Math.min(bytes.length, length));
+	}
+
+	private static String sha1(byte[] data, int length)
+	{
+		try
+		{
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(data, 0, length);
+
+			byte[] bytes = digest.digest();
+			char[] hex = new char[bytes.length * 2];
+
+			for (int index = 0; index < bytes.length; index++)
+			{
+				hex[index * 2] = HEX[(bytes[index] >> 4) & 0xf];
+				hex[index * 2 + 1] = HEX[bytes[index] & 0xf];
+			}
+
+			return new String(hex);
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package android.net;
+
+import java.io.File;
+
+/**
+ * JVM stand-in for the parts of {@code android.net.Uri} used by the library. Only hierarchical {@code scheme://host/path}
+ * Uris are supported, and nothing is encoded or decoded.
+ */
+public final class Uri
+{
+	private final String uriString;
+	private final String scheme;
+	private final String host;
+	private final String path;
+
+	private Uri(String uriString)
+	{
+		this.uriString = uriString;
+
+		int schemeEnd = uriString.indexOf("://");
+
+		if (schemeEnd < 0)
+		{
+			scheme = null;
+			host = null;
+			path = uriString;
+			return;
+		}
+
+		scheme = uriString.substring(0, schemeEnd);
+
+		int hostStart = schemeEnd + 3;
+		int pathStart = uriString.indexOf('/', hostStart);
+
+		if (pathStart < 0)
+		{
+			pathStart = uriString.length();
+		}
+
+		host = pathStart == hostStart ? null : uriString.substring(hostStart, pathStart);
+		path = pathStart == uriString.length() ? null : uriString.substring(pathStart);
+	}
+
+	public static Uri parse(String uriString)
+	{
+		return new Uri(uriString);
+	}
+
+	public static Uri fromFile(File file)
+	{
+		return new Uri("file://" + file.getAbsolutePath());
+	}
+
+	public String getScheme()
+	{
+		return scheme;
+	}
+
+	public String getHost()
+	{
+		return host;
+	}
+
+	public String getPath()
+	{
+		return path;
+	}
+
+	@Override public boolean equals(Object o)
+	{
+		return o instanceof Uri && uriString.equals(((Uri)o).uriString);
+	}
+
+	@Override public int hashCode()
+	{
+		return uriString.hashCode();
+	}
+
+	@Override public String toString()
+	{
+		return uriString;
+	}
+}
@@ -0,0 +1,12 @@
+package android.os;
+
+/**
+ * JVM stand-in for {@code android.os.SystemClock}
+ */
+public class SystemClock
+{
+	public static long elapsedRealtime()
+	{
+		return System.nanoTime() / 1000000L;
+	}
+}
@@ -0,0 +1,12 @@
+package android.system;
+
+/**
+ * JVM stand-in for {@code android.system.ErrnoException}
+ */
+public class ErrnoException extends Exception
+{
+	public ErrnoException(String functionName, Throwable cause)
+	{
+		super(functionName + " failed", cause);
+	}
+}
@@ -0,0 +1,23 @@
+package android.system;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * JVM stand-in for the parts of {@code android.system.Os} used by the library
+ */
+public class Os
+{
+	public static void link(String oldPath, String newPath) throws ErrnoException
+	{
+		try
+		{
+			Files.createLink(Paths.get(newPath), Paths.get(oldPath));
+		}
+		catch (IOException | UnsupportedOperationException e)
+		{
+			throw new ErrnoException("link", e);
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package android.text;
+
+/**
+ * JVM stand-in for the parts of {@code android.text.TextUtils} used by the library
+ */
+public class TextUtils
+{
+	public static boolean isEmpty(CharSequence str)
+	{
+		return str == null || str.length() == 0;
+	}
+}
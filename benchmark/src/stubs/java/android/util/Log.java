@@ -0,0 +1,19 @@
+package android.util;
+
+/**
+ * JVM stand-in for {@code android.util.Log}, which writes to standard error
+ */
+public class Log
+{
+	public static int w(String tag, String msg)
+	{
+		System.err.println("W/" + tag + ": " + msg);
+		return 0;
+	}
+
+	public static int e(String tag, String msg)
+	{
+		System.err.println("E/" + tag + ": " + msg);
+		return 0;
+	}
+}
@@ -0,0 +1,40 @@
+package com.cube.storm;
+
+import com.cube.storm.content.lib.factory.FileFactory;
+import com.cube.storm.content.lib.manager.DeploymentManager;
+import com.cube.storm.content.lib.network.UpdateCheckValidators;
+import com.cube.storm.content.lib.parser.BundleBuilder;
+import com.cube.storm.content.lib.parser.ContentPrewarmer;
+import com.cube.storm.content.lib.parser.ParsedObjectCache;
+import com.cube.storm.util.lib.manager.FileManager;
+import com.cube.storm.util.lib.resolver.Resolver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * JVM stand-in for the library {@code ContentSettings}, holding only the settings read by the benchmarked classes.
+ * The real class needs an Android {@code Context} and the update machinery, neither of which are benchmarked.
+ */
+public class ContentSettings
+{
+	private static final ContentSettings instance = new ContentSettings();
+
+	public static ContentSettings getInstance()
+	{
+		return instance;
+	}
+
+	@Getter @Setter private String storagePath;
+	@Getter @Setter private FileManager fileManager = FileManager.getInstance();
+	@Getter @Setter private DeploymentManager deploymentManager;
+	@Getter @Setter private BundleBuilder bundleBuilder;
+	@Getter @Setter private FileFactory fileFactory;
+	@Getter @Setter private Map<String, Resolver> uriResolvers = new LinkedHashMap<String, Resolver>(2);
+	@Getter @Setter private ParsedObjectCache parsedObjectCache;
+	@Getter @Setter private ContentPrewarmer prewarmer;
+	@Getter @Setter private UpdateCheckValidators updateCheckValidators;
+}
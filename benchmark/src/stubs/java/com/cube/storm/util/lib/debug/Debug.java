@@ -0,0 +1,12 @@
+package com.cube.storm.util.lib.debug;
+
+/**
+ * JVM stand-in for the storm util {@code Debug} class
+ */
+public class Debug
+{
+	public static void out(String message, Object... args)
+	{
+		System.err.println(String.format(message, args));
+	}
+}
@@ -0,0 +1,75 @@
+package com.cube.storm.util.lib.manager;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * JVM stand-in for the parts of the storm util {@code FileManager} used by the library. File hashes are lower case
+ * SHA-1 hex digests, the same as the hashes in the manifest.
+ */
+public class FileManager
+{
+	private static final FileManager instance = new FileManager();
+
+	public static FileManager getInstance()
+	{
+		return instance;
+	}
+
+	public String readFileAsString(File file)
+	{
+		try
+		{
+			return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+
+	public JsonElement readFileAsJson(File file)
+	{
+		String contents = readFileAsString(file);
+		return contents == null ? null : JsonParser.parseString(contents);
+	}
+
+	public String getFileHash(String filePath)
+	{
+		try (InputStream stream = new BufferedInputStream(new FileInputStream(filePath), 8192))
+		{
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] buffer = new byte[8192];
+			int count;
+
+			while ((count = stream.read(buffer)) != -1)
+			{
+				digest.update(buffer, 0, count);
+			}
+
+			byte[] bytes = digest.digest();
+			StringBuilder hex = new StringBuilder(bytes.length * 2);
+
+			for (byte b : bytes)
+			{
+				hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+
+			return hex.toString();
+		}
+		catch (IOException | NoSuchAlgorithmException e)
+		{
+			return null;
+		}
+	}
+}
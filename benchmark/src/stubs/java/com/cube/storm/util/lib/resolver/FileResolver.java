@@ -0,0 +1,30 @@
+package com.cube.storm.util.lib.resolver;
+
+import android.net.Uri;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+
+/**
+ * JVM stand-in for the storm util {@code FileResolver}, which resolves {@code file://} Uris
+ */
+public class FileResolver extends Resolver
+{
+	@Override public Uri resolveUri(Uri uri)
+	{
+		return uri;
+	}
+
+	@Override public InputStream resolveFile(Uri uri)
+	{
+		try
+		{
+			return new FileInputStream(uri.getPath());
+		}
+		catch (FileNotFoundException e)
+		{
+			return null;
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package com.cube.storm.util.lib.resolver;
+
+import android.net.Uri;
+
+import java.io.InputStream;
+
+/**
+ * JVM stand-in for the storm util {@code Resolver} class
+ */
+public abstract class Resolver
+{
+	public abstract Uri resolveUri(Uri uri);
+
+	public abstract InputStream resolveFile(Uri uri);
+}
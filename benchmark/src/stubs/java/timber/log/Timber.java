@@ -0,0 +1,29 @@
+package timber.log;
+
+/**
+ * JVM stand-in for {@code timber.log.Timber}. Log calls are discarded so they do not affect the benchmarks.
+ */
+public class Timber
+{
+	private static final Tree TREE = new Tree();
+
+	public static Tree tag(String tag)
+	{
+		return TREE;
+	}
+
+	public static class Tree
+	{
+		public void i(String message, Object... args)
+		{
+		}
+
+		public void w(String message, Object... args)
+		{
+		}
+
+		public void e(String message, Object... args)
+		{
+		}
+	}
+}
@@ -1,22 +1,34 @@
 package com.cube.storm;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
+import android.net.Uri;
 import android.text.TextUtils;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.cube.storm.content.lib.Environment;
+import com.cube.storm.content.lib.codec.BundleCodec;
+import com.cube.storm.content.lib.codec.BundleCodecs;
 import com.cube.storm.content.lib.factory.FileFactory;
 import com.cube.storm.content.lib.listener.DownloadListener;
 import com.cube.storm.content.lib.listener.UpdateListener;
+import com.cube.storm.content.lib.listener.UpdateMetricsListener;
 import com.cube.storm.content.lib.manager.APIManager;
 import com.cube.storm.content.lib.manager.BundleIntegrityManager;
 import com.cube.storm.content.lib.manager.DefaultMigrationManager;
 import com.cube.storm.content.lib.manager.DefaultUpdateManager;
+import com.cube.storm.content.lib.manager.DeploymentManager;
 import com.cube.storm.content.lib.manager.LegacyBundleIntegrityManager;
+import com.cube.storm.content.lib.manager.LegacyDeploymentManager;
 import com.cube.storm.content.lib.manager.MigrationManager;
 import com.cube.storm.content.lib.manager.UpdateManager;
+import com.cube.storm.content.lib.network.ContentHttpClient;
+import com.cube.storm.content.lib.network.UpdateCheckValidators;
 import com.cube.storm.content.lib.policy.PolicyEnforcingUpdateManager;
 import com.cube.storm.content.lib.parser.BundleBuilder;
+import com.cube.storm.content.lib.parser.ContentPrewarmer;
+import com.cube.storm.content.lib.parser.ParsedObjectCache;
 import com.cube.storm.content.lib.policy.PolicyManager;
 import com.cube.storm.content.lib.policy.SharedPreferencesPolicyManager;
 import com.cube.storm.content.lib.resolver.CacheResolver;
@@ -27,6 +39,7 @@ import com.cube.storm.util.lib.resolver.Resolver;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.io.File;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -96,12 +109,32 @@ public class ContentSettings
 	 * Default {@link com.cube.storm.content.lib.manager.APIManager} to use throughout the module
 	 */
 	@Getter @Setter private APIManager apiManager;
+
+	/**
+	 * HTTP engine shared by every request to the content API
+	 * <p/>
+	 * Defaults to a {@link ContentHttpClient} which caches responses in {@code storm-http} in {@link Context#getCacheDir()}
+	 */
+	@Getter @Setter private ContentHttpClient httpClient;
+
+	/**
+	 * Validators of the update checks, which make the checks conditional so the server can answer
+	 * {@code 304 Not Modified}, or null if update checks are not conditional.
+	 * <p/>
+	 * Defaults to null. Set with {@link Builder#conditionalUpdateChecks(boolean)}
+	 */
+	@Getter @Setter @Nullable private UpdateCheckValidators updateCheckValidators;
 	
 	/**
 	 * Default {@link BundleIntegrityManager} to use throughout the module
 	 */
 	@Getter @Setter private BundleIntegrityManager bundleIntegrityManager;
 
+	/**
+	 * Default {@link DeploymentManager} to use throughout the module
+	 */
+	@Getter @Setter private DeploymentManager deploymentManager;
+
 	/**
 	 * Default {@link com.cube.storm.content.lib.manager.UpdateManager} to use throughout the module
 	 */
@@ -158,6 +191,27 @@ public class ContentSettings
 	 */
 	@Getter @Setter @Nullable private DownloadListener downloadListener;
 
+	/**
+	 * The time in milliseconds between deliveries of the progress of an update within a phase, to
+	 * {@link com.cube.storm.content.model.UpdateContentRequest#getProgress()} and {@link #downloadListener}. See
+	 * {@link com.cube.storm.content.lib.helper.ProgressCoalescer}.
+	 * <p/>
+	 * Defaults to {@code 250}
+	 */
+	@Getter @Setter private long progressInterval = 250;
+
+	/**
+	 * The percentage the progress of an update has to advance by to be delivered before {@link #progressInterval}
+	 * <p/>
+	 * Defaults to {@code 1}
+	 */
+	@Getter @Setter private float progressStep = 1;
+
+	/**
+	 * Listener instance for the timings and throughput of each update once it has finished
+	 */
+	@Getter @Setter @Nullable private UpdateMetricsListener updateMetricsListener;
+
 	/**
 	 * The gson builder class used to build classes such as manifest
 	 */
@@ -178,6 +232,53 @@ public class ContentSettings
 	 */
 	@Getter @Setter private String authorizationToken;
 
+	/**
+	 * Whether downloaded bundles are extracted as the response is received, rather than being cached to disk as a tarball
+	 * and extracted once the download has finished.
+	 * <p/>
+	 * Defaults to {@code false}
+	 */
+	@Getter @Setter private boolean streamingExtraction;
+
+	/**
+	 * Whether interrupted bundle downloads are kept on disk and resumed with a HTTP range request on the next attempt.
+	 * Takes precedence over {@link #streamingExtraction}.
+	 * <p/>
+	 * Defaults to {@code false}
+	 */
+	@Getter @Setter private boolean resumableDownloads;
+
+	/**
+	 * Codecs downloaded bundles can be compressed with
+	 * <p/>
+	 * Defaults to {@link BundleCodecs} with only gzip registered
+	 */
+	@Getter @Setter private BundleCodecs bundleCodecs = new BundleCodecs();
+
+	/**
+	 * The most parallel connections a bundle is downloaded over using byte ranges, or 1 or less to download bundles over a
+	 * single connection. See {@link com.cube.storm.content.lib.network.SegmentedBundleDownload}.
+	 * {@link #resumableDownloads} takes precedence, and this takes precedence over {@link #streamingExtraction}.
+	 * <p/>
+	 * Defaults to {@code 1}
+	 */
+	@Getter @Setter private int maxDownloadSegments = 1;
+
+	/**
+	 * Cache of objects built by {@link BundleBuilder#build(android.net.Uri, Class)}, or null if objects are not cached.
+	 * <p/>
+	 * Defaults to {@code null}
+	 */
+	@Getter @Setter @Nullable private ParsedObjectCache parsedObjectCache;
+
+	/**
+	 * Loads the files needed for the first screen in the background when the settings are built, or null if prewarming
+	 * is disabled.
+	 * <p/>
+	 * Defaults to {@code null}
+	 */
+	@Getter @Nullable private ContentPrewarmer prewarmer;
+
 	/**
 	 * The builder class for {@link com.cube.storm.ContentSettings}. Use this to create a new {@link com.cube.storm.ContentSettings} instance
 	 * with the customised properties specific for your project.
@@ -203,6 +304,16 @@ public class ContentSettings
 		 */
 		private Context context;
 
+		/**
+		 * Whether to start a {@link ContentPrewarmer} when the settings are built
+		 */
+		private boolean prewarmContent;
+
+		/**
+		 * Files to build in the background when the settings are built, and the class to build each as
+		 */
+		private Map<Uri, Class<?>> prewarmFiles = new LinkedHashMap<>();
+
 		/**
 		 * Default constructor
 		 */
@@ -212,10 +323,12 @@ public class ContentSettings
 			this.context = context.getApplicationContext();
 
 			APIManager(new APIManager(){});
+			httpClient(new ContentHttpClient(ContentHttpClient.newDefaultBuilder(new File(this.context.getCacheDir(), "storm-http")).build()));
 			migrationManager(new DefaultMigrationManager());
 			policyManager(new SharedPreferencesPolicyManager(this.context));
 			updateManager(new PolicyEnforcingUpdateManager(new DefaultUpdateManager()));
 			bundleIntegrityManager(new LegacyBundleIntegrityManager());
+			deploymentManager(new LegacyDeploymentManager());
 
 			fileFactory(new FileFactory(){});
 			bundleBuilder(new BundleBuilder(){});
@@ -242,6 +355,36 @@ public class ContentSettings
 			return this;
 		}
 
+		/**
+		 * Sets the listener for the metrics of each update
+		 *
+		 * @param listener The new listener
+		 *
+		 * @return The {@link com.cube.storm.ContentSettings.Builder} instance for chaining
+		 */
+		public Builder updateMetricsListener(@Nullable UpdateMetricsListener listener)
+		{
+			construct.updateMetricsListener = listener;
+			return this;
+		}
+
+		/**
+		 * Sets how often the progress of an update is delivered. Progress is delivered when either {@param intervalMillis}
+		 * have passed or it has advanced by {@param percentStep} percent since it was last delivered. The first and last
+		 * progress of each phase are always delivered.
+		 *
+		 * @param intervalMillis The time between deliveries, or 0 to deliver every progress event
+		 * @param percentStep The percentage the progress has to advance by to be delivered sooner
+		 *
+		 * @return The {@link com.cube.storm.ContentSettings.Builder} instance for chaining
+		 */
+		public Builder progressCoalescing(long intervalMillis, float percentStep)
+		{
+			construct.progressInterval = intervalMillis;
+			construct.progressStep = percentStep;
+			return this;
+		}
+
 		/**
 		 * Set the app id to use when dealing with Storm CMS
 		 *
@@ -270,6 +413,54 @@ public class ContentSettings
 			return this;
 		}
 
+		/**
+		 * Enables caching of objects built by {@link BundleBuilder#build(android.net.Uri, Class)}, such as pages and
+		 * language packs, so files that are loaded repeatedly are only parsed once per deployed version. The cache is
+		 * trimmed when the system calls {@link ComponentCallbacks2#onTrimMemory(int)}.
+		 *
+		 * @param maxBytes The maximum total size of the json files of the cached objects
+		 *
+		 * @return The {@link com.cube.storm.ContentSettings.Builder} instance for chaining
+		 */
+		public Builder parsedObjectCache(long maxBytes)
+		{
+			construct.parsedObjectCache = new ParsedObjectCache(maxBytes);
+			return this;
+		}
+
+		/**
+		 * Sets whether the deployed manifest is loaded on a background thread when the settings are built, rather than
+		 * when it is first needed
+		 *
+		 * @param prewarmContent {@code true} to load the manifest when the settings are built
+		 *
+		 * @return The {@link com.cube.storm.ContentSettings.Builder} instance for chaining
+		 */
+		public Builder prewarmContent(boolean prewarmContent)
+		{
+			this.prewarmContent = prewarmContent;
+			return this;
+		}
+
+		/**
+		 * Builds a file on a background thread when the settings are built, along with the deployed manifest. The first
+		 * call to {@link BundleBuilder#build(Uri, Class)} with the same Uri and class reuses the result.
+		 * <p/>
+		 * Use this for the files the first screen needs, such as {@code cache://app.json} and the active language pack,
+		 * and call {@link ContentPrewarmer#onFirstScreenLoaded()} once that screen is shown.
+		 *
+		 * @param fileUri The file to build
+		 * @param outClass The class the file is built as when it is first requested
+		 *
+		 * @return The {@link com.cube.storm.ContentSettings.Builder} instance for chaining
+		 */
+		public Builder prewarm(@NonNull Uri fileUri, @NonNull Class<?> outClass)
+		{
+			this.prewarmContent = true;
+			this.prewarmFiles.put(fileUri, outClass);
+			return this;
+		}
+
 		/**
 		 * Set the content URL to download bundles from
 		 *
@@ -324,6 +515,68 @@ public class ContentSettings
 			return this;
 		}
 
+		/**
+		 * Sets whether bundles are extracted straight from the response as it is downloaded, without caching the archive to
+		 * disk first. This halves the disk writes and peak storage needed for an update.
+		 *
+		 * @param streamingExtraction {@code true} to extract bundles whilst they download
+		 *
+		 * @return The {@link com.cube.storm.ContentSettings.Builder} instance for chaining
+		 */
+		public Builder streamingExtraction(boolean streamingExtraction)
+		{
+			construct.streamingExtraction = streamingExtraction;
+			return this;
+		}
+
+		/**
+		 * Sets whether interrupted bundle downloads are resumed from the last byte received rather than restarted. The
+		 * partial download is kept in {@code <storagePath>/downloads/} until it completes.
+		 * <p/>
+		 * Resumable downloads are cached to disk before being extracted, so this takes precedence over {@link #streamingExtraction(boolean)}
+		 *
+		 * @param resumableDownloads {@code true} to resume interrupted downloads
+		 *
+		 * @return The {@link com.cube.storm.ContentSettings.Builder} instance for chaining
+		 */
+		public Builder resumableDownloads(boolean resumableDownloads)
+		{
+			construct.resumableDownloads = resumableDownloads;
+			return this;
+		}
+
+		/**
+		 * Sets the most parallel connections a bundle is downloaded over. The number of connections used adapts to the
+		 * bandwidth measured at the start of the download, so small bundles and fast networks use fewer connections. The
+		 * server must support range requests, otherwise the bundle is downloaded over a single connection.
+		 * <p/>
+		 * Segmented downloads are cached to disk before being extracted, so this takes precedence over
+		 * {@link #streamingExtraction(boolean)}, and is ignored if {@link #resumableDownloads(boolean)} is enabled
+		 *
+		 * @param maxSegments The most connections to use, or 1 to download over a single connection
+		 *
+		 * @return The {@link com.cube.storm.ContentSettings.Builder} instance for chaining
+		 */
+		public Builder segmentedDownloads(int maxSegments)
+		{
+			construct.maxDownloadSegments = maxSegments;
+			return this;
+		}
+
+		/**
+		 * Registers a codec that downloaded bundles can be compressed with, in addition to gzip. The codec of each bundle
+		 * is picked from the response, or detected from the start of the archive.
+		 *
+		 * @param codec The codec to register, for example {@link com.cube.storm.content.lib.codec.ZstdBundleCodec}
+		 *
+		 * @return The {@link com.cube.storm.ContentSettings.Builder} instance for chaining
+		 */
+		public Builder bundleCodec(@NonNull BundleCodec codec)
+		{
+			construct.bundleCodecs.register(codec);
+			return this;
+		}
+
 		/**
 		 * Set the content URL to download bundles from
 		 *
@@ -394,6 +647,34 @@ public class ContentSettings
 			return this;
 		}
 
+		/**
+		 * Set the HTTP engine to make requests to the content API with
+		 *
+		 * @param httpClient The new HTTP engine. Use {@link ContentHttpClient#newDefaultBuilder(File)} to customise the
+		 * default settings
+		 *
+		 * @return The {@link com.cube.storm.ContentSettings.Builder} instance for chaining
+		 */
+		public Builder httpClient(@NonNull ContentHttpClient httpClient)
+		{
+			construct.httpClient = httpClient;
+			return this;
+		}
+
+		/**
+		 * Sets whether update checks send the {@code ETag} and {@code Last-Modified} validators of the last check which
+		 * found no update, so the server can answer {@code 304 Not Modified} without building a response
+		 *
+		 * @param conditionalUpdateChecks Whether update checks are conditional. Defaults to {@code false}
+		 *
+		 * @return The {@link com.cube.storm.ContentSettings.Builder} instance for chaining
+		 */
+		public Builder conditionalUpdateChecks(boolean conditionalUpdateChecks)
+		{
+			construct.updateCheckValidators = conditionalUpdateChecks ? new UpdateCheckValidators() : null;
+			return this;
+		}
+
 		/**
 		 * Set the default migration manager
 		 *
@@ -431,6 +712,17 @@ public class ContentSettings
 			return this;
 		}
 
+		/**
+		 * Set the default {@link DeploymentManager}
+		 * @param manager The new {@link DeploymentManager} to use to deploy verified bundles
+		 * @return The {@link com.cube.storm.ContentSettings.Builder} instance for chaining
+		 */
+		public Builder deploymentManager(@NonNull DeploymentManager manager)
+		{
+			construct.deploymentManager = manager;
+			return this;
+		}
+
 		/**
 		 * Set the default Update manager
 		 *
@@ -502,7 +794,36 @@ public class ContentSettings
 				throw new IllegalArgumentException("You must provide an app id, content url, and version.");
 			}
 
-			return (ContentSettings.instance = construct);
+			if (construct.parsedObjectCache != null)
+			{
+				final ParsedObjectCache cache = construct.parsedObjectCache;
+				context.registerComponentCallbacks(new ComponentCallbacks2()
+				{
+					@Override public void onTrimMemory(int level)
+					{
+						cache.trimMemory(level);
+					}
+
+					@Override public void onConfigurationChanged(@NonNull Configuration newConfig)
+					{
+					}
+
+					@Override public void onLowMemory()
+					{
+						cache.evictAll();
+					}
+				});
+			}
+
+			ContentSettings.instance = construct;
+
+			// the prewarm tasks use the built instance
+			if (prewarmContent)
+			{
+				construct.prewarmer = new ContentPrewarmer(prewarmFiles);
+			}
+
+			return construct;
 		}
 	}
 }
@@ -9,6 +9,10 @@ public class Constants
 	// Endpoint added in 2020 because /bundle endpoint was not landmark-aware
 	public static final String API_LANDMARK_BUNDLE = "apps/%s/landmark_bundle?environment=%s";
 
+	// Endpoints used by file level updates, which download single files rather than a delta bundle
+	public static final String API_MANIFEST = "apps/%s/manifest?environment=%s";
+	public static final String API_FILE = "apps/%s/files";
+
 	// Storm URI protocols
 	public static final String URI_CACHE = "cache";
 	public static final String URI_NATIVE = "app";
@@ -19,5 +23,6 @@ public class Constants
 	public static final String FOLDER_LANGUAGES = "languages";
 	public static final String FOLDER_DATA = "data";
 	public static final String FILE_MANIFEST = "manifest.json";
+	public static final String FILE_MANIFEST_INDEX = "manifest.idx";
 	public static final String FILE_ENTRY_POINT = "app.json";
 }
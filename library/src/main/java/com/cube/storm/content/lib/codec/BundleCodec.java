@@ -0,0 +1,50 @@
+package com.cube.storm.content.lib.codec;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Compression a bundle archive can be downloaded with. The tar archive inside is the same whichever codec compresses
+ * it, so a codec only has to decode the compressed stream.
+ * <p/>
+ * Codecs are registered with {@link BundleCodecs}, which picks the codec of a download from its response headers, its
+ * file name or the first bytes of the archive.
+ */
+public interface BundleCodec
+{
+	/**
+	 * @return The {@code Content-Encoding} token of the codec, for example {@code gzip}
+	 */
+	@NonNull
+	String getEncoding();
+
+	/**
+	 * @return The media types of archives compressed with the codec, for example {@code application/gzip}
+	 */
+	@NonNull
+	String[] getContentTypes();
+
+	/**
+	 * @return The file extensions of archives compressed with the codec, including the dot, for example {@code .tar.gz}
+	 */
+	@NonNull
+	String[] getExtensions();
+
+	/**
+	 * @return The bytes every stream compressed with the codec starts with
+	 */
+	@NonNull
+	byte[] getMagic();
+
+	/**
+	 * @param compressed The compressed archive
+	 *
+	 * @return A stream of the uncompressed tar archive, which closes {@param compressed} when closed
+	 *
+	 * @throws IOException if the stream could not be read
+	 */
+	@NonNull
+	InputStream decode(@NonNull InputStream compressed) throws IOException;
+}
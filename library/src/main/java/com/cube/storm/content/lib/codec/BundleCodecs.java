@@ -0,0 +1,211 @@
+package com.cube.storm.content.lib.codec;
+
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import okhttp3.Headers;
+
+/**
+ * The {@link BundleCodec}s bundles can be downloaded with. {@link GzipBundleCodec} is always registered, and is used
+ * when the codec of a bundle can't be determined.
+ * <p/>
+ * The codec of a download is picked from its {@code Content-Encoding}, then its {@code Content-Type}, then the file
+ * extension of its {@code Content-Disposition} file name or url. Bundles are often served from storage which doesn't
+ * describe them, so if none of these match, the codec is detected from the first bytes of the archive by
+ * {@link #detect(InputStream)}.
+ * <p/>
+ * Access this class via {@link com.cube.storm.ContentSettings#getBundleCodecs()}
+ */
+public class BundleCodecs
+{
+	private final BundleCodec defaultCodec = new GzipBundleCodec();
+	private final List<BundleCodec> codecs = new CopyOnWriteArrayList<>(Collections.singletonList(defaultCodec));
+
+	/**
+	 * Registers a codec. Codecs registered later take precedence when more than one matches.
+	 *
+	 * @param codec The codec to register
+	 *
+	 * @return This instance for chaining
+	 */
+	@NonNull
+	public BundleCodecs register(@NonNull BundleCodec codec)
+	{
+		codecs.add(0, codec);
+		return this;
+	}
+
+	/**
+	 * @return Every registered codec, in order of precedence
+	 */
+	@NonNull
+	public List<BundleCodec> getCodecs()
+	{
+		return Collections.unmodifiableList(codecs);
+	}
+
+	/**
+	 * Picks the codec of a bundle download from its response
+	 *
+	 * @param responseHeaders The headers of the response, or null
+	 * @param url The url of the bundle, or null
+	 *
+	 * @return The codec, or null if the response doesn't say how the bundle is compressed
+	 */
+	@Nullable
+	public BundleCodec select(@Nullable Headers responseHeaders, @Nullable String url)
+	{
+		String fileName = url == null ? null : stripQuery(url);
+
+		if (responseHeaders == null)
+		{
+			return select(null, null, fileName);
+		}
+
+		String disposition = responseHeaders.get("Content-Disposition");
+		int nameIndex = disposition == null ? -1 : disposition.indexOf("filename=");
+
+		if (nameIndex != -1)
+		{
+			fileName = disposition.substring(nameIndex + "filename=".length()).split(";")[0].replace("\"", "").trim();
+		}
+
+		return select(responseHeaders.get("Content-Encoding"), responseHeaders.get("Content-Type"), fileName);
+	}
+
+	/**
+	 * Picks the codec of a bundle from how it is described
+	 *
+	 * @param contentEncoding The {@code Content-Encoding} of the bundle, or null
+	 * @param contentType The {@code Content-Type} of the bundle, or null
+	 * @param fileName The file name or path of the bundle, or null
+	 *
+	 * @return The codec, or null if none of the descriptions match a registered codec
+	 */
+	@Nullable
+	public BundleCodec select(@Nullable String contentEncoding, @Nullable String contentType, @Nullable String fileName)
+	{
+		if (!TextUtils.isEmpty(contentEncoding))
+		{
+			String encoding = contentEncoding.trim().toLowerCase(Locale.US);
+
+			for (BundleCodec codec : codecs)
+			{
+				if (codec.getEncoding().equals(encoding) || ("x-" + codec.getEncoding()).equals(encoding))
+				{
+					return codec;
+				}
+			}
+		}
+
+		if (!TextUtils.isEmpty(contentType))
+		{
+			String mediaType = contentType.split(";")[0].trim().toLowerCase(Locale.US);
+
+			for (BundleCodec codec : codecs)
+			{
+				for (String type : codec.getContentTypes())
+				{
+					if (type.equals(mediaType))
+					{
+						return codec;
+					}
+				}
+			}
+		}
+
+		if (!TextUtils.isEmpty(fileName))
+		{
+			String name = fileName.toLowerCase(Locale.US);
+
+			for (BundleCodec codec : codecs)
+			{
+				for (String extension : codec.getExtensions())
+				{
+					if (name.endsWith(extension))
+					{
+						return codec;
+					}
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Detects the codec of an archive from its first bytes, without consuming them
+	 *
+	 * @param compressed The compressed archive, which must support {@link InputStream#mark(int)}
+	 *
+	 * @return The codec whose magic bytes the archive starts with, or {@link GzipBundleCodec} if none match
+	 *
+	 * @throws IOException if the stream could not be read
+	 */
+	@NonNull
+	public BundleCodec detect(@NonNull InputStream compressed) throws IOException
+	{
+		byte[] header = new byte[16];
+		compressed.mark(header.length);
+		int length = 0;
+		int count;
+
+		try
+		{
+			while (length < header.length && (count = compressed.read(header, length, header.length - length)) != -1)
+			{
+				length += count;
+			}
+		}
+		finally
+		{
+			compressed.reset();
+		}
+
+		for (BundleCodec codec : codecs)
+		{
+			byte[] magic = codec.getMagic();
+			boolean matches = magic.length > 0 && magic.length <= length;
+
+			for (int index = 0; matches && index < magic.length; index++)
+			{
+				matches = header[index] == magic[index];
+			}
+
+			if (matches)
+			{
+				return codec;
+			}
+		}
+
+		return defaultCodec;
+	}
+
+	/**
+	 * @return {@param url} without its query or fragment, so the extension of the bundle can be matched
+	 */
+	private static String stripQuery(String url)
+	{
+		int end = url.length();
+
+		for (char separator : new char[]{'?', '#'})
+		{
+			int index = url.indexOf(separator);
+
+			if (index != -1 && index < end)
+			{
+				end = index;
+			}
+		}
+
+		return url.substring(0, end);
+	}
+}
@@ -0,0 +1,40 @@
+package com.cube.storm.content.lib.codec;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decodes gzipped bundles, which is how the content API serves bundles by default
+ */
+public class GzipBundleCodec implements BundleCodec
+{
+	private static final int BUFFER_SIZE = 8192;
+
+	@NonNull @Override public String getEncoding()
+	{
+		return "gzip";
+	}
+
+	@NonNull @Override public String[] getContentTypes()
+	{
+		return new String[]{"application/gzip", "application/x-gzip"};
+	}
+
+	@NonNull @Override public String[] getExtensions()
+	{
+		return new String[]{".tar.gz", ".tgz", ".gz"};
+	}
+
+	@NonNull @Override public byte[] getMagic()
+	{
+		return new byte[]{0x1f, (byte)0x8b};
+	}
+
+	@NonNull @Override public InputStream decode(@NonNull InputStream compressed) throws IOException
+	{
+		return new GZIPInputStream(compressed, BUFFER_SIZE);
+	}
+}
@@ -0,0 +1,106 @@
+package com.cube.storm.content.lib.codec;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes zstd compressed bundles. Bundles are mostly JSON, which zstd compresses smaller than gzip and decodes several
+ * times faster.
+ * <p/>
+ * Bundles can be compressed with a dictionary trained on page JSON, which improves the ratio further when the bundle
+ * has many small files. The same dictionary must be given to this codec, for example from the app's assets:
+ * <pre>
+ * new ContentSettings.Builder(context)
+ *     .bundleCodec(new ZstdBundleCodec(context.getAssets().open("bundle.dict")))
+ * </pre>
+ * This codec requires the {@code com.github.luben:zstd-jni} dependency, which apps using it must add themselves.
+ */
+public class ZstdBundleCodec implements BundleCodec
+{
+	@Nullable private final byte[] dictionary;
+
+	/**
+	 * Creates a codec for bundles compressed without a dictionary
+	 */
+	public ZstdBundleCodec()
+	{
+		this((byte[])null);
+	}
+
+	/**
+	 * @param dictionary The dictionary the bundles were compressed with, or null if they were compressed without one
+	 */
+	public ZstdBundleCodec(@Nullable byte[] dictionary)
+	{
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * @param dictionary The dictionary the bundles were compressed with, which is read fully and closed
+	 *
+	 * @throws IOException if the dictionary could not be read
+	 */
+	public ZstdBundleCodec(@NonNull InputStream dictionary) throws IOException
+	{
+		this(readFully(dictionary));
+	}
+
+	@NonNull @Override public String getEncoding()
+	{
+		return "zstd";
+	}
+
+	@NonNull @Override public String[] getContentTypes()
+	{
+		return new String[]{"application/zstd"};
+	}
+
+	@NonNull @Override public String[] getExtensions()
+	{
+		return new String[]{".tar.zst", ".tzst", ".zst"};
+	}
+
+	@NonNull @Override public byte[] getMagic()
+	{
+		return new byte[]{0x28, (byte)0xb5, 0x2f, (byte)0xfd};
+	}
+
+	@NonNull @Override public InputStream decode(@NonNull InputStream compressed) throws IOException
+	{
+		ZstdInputStream stream = new ZstdInputStream(compressed);
+
+		if (dictionary != null)
+		{
+			stream.setDict(dictionary);
+		}
+
+		return stream;
+	}
+
+	private static byte[] readFully(InputStream stream) throws IOException
+	{
+		try
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int count;
+
+			while ((count = stream.read(buffer)) != -1)
+			{
+				out.write(buffer, 0, count);
+			}
+
+			return out.toByteArray();
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+}
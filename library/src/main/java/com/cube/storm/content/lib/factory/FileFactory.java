@@ -7,7 +7,14 @@ import androidx.annotation.Nullable;
 import com.cube.storm.ContentSettings;
 import com.cube.storm.util.lib.resolver.Resolver;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 
 /**
  * Factory class used to resolve a file based on its Uri.
@@ -17,6 +24,19 @@ import java.io.InputStream;
  */
 public abstract class FileFactory
 {
+	/**
+	 * Files of at least this size are memory mapped by {@link #loadBufferFromUri(Uri)}, if the deployed files are
+	 * immutable. Mapping has a fixed cost that outweighs copying for smaller files.
+	 */
+	public static final int MAPPED_FILE_THRESHOLD = 64 * 1024;
+
+	/**
+	 * Maximum number of heap buffers kept for reuse by {@link #recycleBuffer(ByteBuffer)}
+	 */
+	private static final int MAX_POOLED_BUFFERS = 8;
+
+	private final ArrayDeque<byte[]> bufferPool = new ArrayDeque<>(MAX_POOLED_BUFFERS);
+
 	/**
 	 * Loads a file from disk based on its Uri location
 	 *
@@ -36,4 +56,147 @@ public abstract class FileFactory
 
 		return null;
 	}
+
+	/**
+	 * Loads a file based on its Uri location into a buffer without copying it through intermediate streams
+	 * <p/>
+	 * {@code file://} Uris, and {@code cache://} Uris that resolve to one, are memory mapped read-only if the file is at
+	 * least {@link #MAPPED_FILE_THRESHOLD} bytes and the {@link com.cube.storm.content.lib.manager.DeploymentManager}
+	 * never rewrites deployed files in place, as a mapped file that is rewritten can be read torn or fault. Smaller
+	 * files, and files of any other scheme, are read into a heap buffer taken from a small pool, which can be returned
+	 * to the pool with {@link #recycleBuffer(ByteBuffer)} once it is no longer used. Larger files which are not mapped
+	 * are read into a heap buffer of their own size.
+	 *
+	 * @param fileUri The file Uri to resolve
+	 *
+	 * @return A buffer positioned at the start of the file with its limit at the end of the file, or null
+	 */
+	@Nullable
+	public ByteBuffer loadBufferFromUri(@NonNull Uri fileUri)
+	{
+		Uri resolvedUri = fileUri;
+
+		if (!"file".equalsIgnoreCase(fileUri.getScheme()))
+		{
+			Resolver resolver = ContentSettings.getInstance().getUriResolvers().get(fileUri.getScheme());
+			Uri uri = resolver == null ? null : resolver.resolveUri(fileUri);
+
+			if (uri != null)
+			{
+				resolvedUri = uri;
+			}
+		}
+
+		try
+		{
+			if ("file".equalsIgnoreCase(resolvedUri.getScheme()) && resolvedUri.getPath() != null)
+			{
+				return loadBuffer(new File(resolvedUri.getPath()));
+			}
+
+			InputStream stream = loadFromUri(resolvedUri);
+
+			if (stream != null)
+			{
+				return loadBuffer(stream);
+			}
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns a heap buffer from {@link #loadBufferFromUri(Uri)} to the pool. The buffer must not be used afterwards.
+	 * Buffers that were memory mapped, or are larger than {@link #MAPPED_FILE_THRESHOLD}, are ignored.
+	 *
+	 * @param buffer The buffer to recycle
+	 */
+	public void recycleBuffer(@NonNull ByteBuffer buffer)
+	{
+		if (buffer.hasArray() && buffer.array().length == MAPPED_FILE_THRESHOLD)
+		{
+			synchronized (bufferPool)
+			{
+				if (bufferPool.size() < MAX_POOLED_BUFFERS)
+				{
+					bufferPool.push(buffer.array());
+				}
+			}
+		}
+	}
+
+	private ByteBuffer loadBuffer(File file) throws IOException
+	{
+		try (RandomAccessFile input = new RandomAccessFile(file, "r"))
+		{
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+
+			if (size >= MAPPED_FILE_THRESHOLD && ContentSettings.getInstance().getDeploymentManager().hasImmutableFiles())
+			{
+				// the mapping stays valid after the channel is closed
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+
+			if (size > Integer.MAX_VALUE)
+			{
+				throw new IOException("File " + file + " is too large to load into a buffer");
+			}
+
+			byte[] bytes = size > MAPPED_FILE_THRESHOLD ? new byte[(int)size] : obtainBuffer();
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			buffer.limit((int)size);
+
+			while (buffer.hasRemaining())
+			{
+				if (channel.read(buffer) == -1)
+				{
+					break;
+				}
+			}
+
+			buffer.flip();
+			return buffer;
+		}
+	}
+
+	private ByteBuffer loadBuffer(InputStream stream) throws IOException
+	{
+		try
+		{
+			byte[] bytes = obtainBuffer();
+			int length = 0;
+			int read;
+
+			while ((read = stream.read(bytes, length, bytes.length - length)) > -1)
+			{
+				length += read;
+
+				if (length == bytes.length)
+				{
+					// too large for a pooled buffer, keep growing it
+					bytes = Arrays.copyOf(bytes, bytes.length * 2);
+				}
+			}
+
+			return ByteBuffer.wrap(bytes, 0, length);
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+
+	private byte[] obtainBuffer()
+	{
+		synchronized (bufferPool)
+		{
+			byte[] bytes = bufferPool.poll();
+			return bytes != null ? bytes : new byte[MAPPED_FILE_THRESHOLD];
+		}
+	}
 }
@@ -0,0 +1,188 @@
+package com.cube.storm.content.lib.handler;
+
+import android.net.Uri;
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+
+import com.cube.storm.content.lib.helper.FileHelper;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Persisted record of a partially downloaded bundle, used to resume the download with a HTTP range request.
+ * <p/>
+ * Journals are stored in {@code <storagePath>/downloads/} alongside the partial archive, and are keyed by the bundle
+ * URL without its query string so that re-signed URLs for the same bundle resume the same download. The stored
+ * {@link #etag} or {@link #lastModified} validator is sent as {@code If-Range}, so a changed bundle is always
+ * downloaded from the start.
+ */
+public class DownloadJournal
+{
+	public static final String FOLDER_DOWNLOADS = "downloads";
+
+	private static final Gson gson = new Gson();
+
+	/**
+	 * The URL the partial download came from
+	 */
+	@Getter private String url;
+
+	/**
+	 * {@code ETag} of the bundle being downloaded
+	 */
+	@Getter @Setter private String etag;
+
+	/**
+	 * {@code Last-Modified} date of the bundle being downloaded
+	 */
+	@Getter @Setter private String lastModified;
+
+	/**
+	 * Number of bytes of the bundle written to {@link #partialFilePath}
+	 */
+	@Getter @Setter private long bytesReceived;
+
+	/**
+	 * Path to the partially downloaded archive
+	 */
+	@Getter private String partialFilePath;
+
+	private transient File journalFile;
+
+	/**
+	 * Loads the journal for a bundle URL, or creates a new empty journal if there is no download to resume
+	 *
+	 * @param storagePath The content storage path
+	 * @param url The bundle URL
+	 *
+	 * @return The journal for the URL
+	 */
+	@NonNull
+	public static DownloadJournal load(@NonNull String storagePath, @NonNull String url)
+	{
+		File folder = new File(storagePath, FOLDER_DOWNLOADS);
+		String key = generateKey(url);
+		File journalFile = new File(folder, key + ".json");
+		DownloadJournal journal = null;
+
+		if (journalFile.exists())
+		{
+			try (Reader reader = new InputStreamReader(new FileInputStream(journalFile), "UTF-8"))
+			{
+				journal = gson.fromJson(reader, DownloadJournal.class);
+			}
+			catch (Exception e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		if (journal == null)
+		{
+			journal = new DownloadJournal();
+			journal.partialFilePath = new File(folder, key + ".tar.gz").getAbsolutePath();
+		}
+
+		journal.url = url;
+		journal.journalFile = journalFile;
+		return journal;
+	}
+
+	/**
+	 * Deletes every journal and partial download
+	 *
+	 * @param storagePath The content storage path
+	 */
+	public static void clear(@NonNull String storagePath)
+	{
+		FileHelper.deleteRecursive(new File(storagePath, FOLDER_DOWNLOADS));
+	}
+
+	private static String generateKey(String url)
+	{
+		Uri uri = Uri.parse(url);
+		String stableUrl = uri.getScheme() + "://" + uri.getAuthority() + uri.getPath();
+
+		try
+		{
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(stableUrl.getBytes("UTF-8"));
+			return String.format("%040x", new BigInteger(1, digest));
+		}
+		catch (NoSuchAlgorithmException | IOException e)
+		{
+			return Integer.toHexString(stableUrl.hashCode());
+		}
+	}
+
+	@NonNull
+	public File getPartialFile()
+	{
+		return new File(partialFilePath);
+	}
+
+	/**
+	 * @return true if there is partial data on disk with a validator that can be used to resume it
+	 */
+	public boolean canResume()
+	{
+		return (!TextUtils.isEmpty(etag) || !TextUtils.isEmpty(lastModified)) && getPartialFile().length() > 0;
+	}
+
+	/**
+	 * @return The validator to send as the {@code If-Range} header, preferring the {@code ETag}
+	 */
+	public String getRangeValidator()
+	{
+		return !TextUtils.isEmpty(etag) ? etag : lastModified;
+	}
+
+	/**
+	 * Resets the journal to start a new download from byte 0
+	 */
+	public void reset(String etag, String lastModified)
+	{
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.bytesReceived = 0;
+	}
+
+	/**
+	 * Writes the journal to disk
+	 */
+	public void save()
+	{
+		journalFile.getParentFile().mkdirs();
+
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(journalFile), "UTF-8"))
+		{
+			gson.toJson(this, writer);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Deletes the journal and its partial download
+	 */
+	public void delete()
+	{
+		journalFile.delete();
+		getPartialFile().delete();
+	}
+}
@@ -1,20 +1,13 @@
 package com.cube.storm.content.lib.handler;
 
-import net.callumtaylor.asynchttp.response.CacheResponseHandler;
+import com.cube.storm.ContentSettings;
 
-import org.kamranzafar.jtar.TarEntry;
-import org.kamranzafar.jtar.TarInputStream;
+import net.callumtaylor.asynchttp.response.CacheResponseHandler;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
 
 import lombok.Getter;
 
@@ -22,71 +15,50 @@ import lombok.Getter;
  * Caches the response directly to disk. Useful when downloading
  * large files. <b>note</b> This will delete any existing files
  * with the same file name
+ * <p/>
+ * The archive is decoded with the {@link com.cube.storm.content.lib.codec.BundleCodec} picked from the response by
+ * {@link ContentSettings#getBundleCodecs()}, so it may be compressed with any registered codec despite the name.
+ * <p/>
+ * See {@link StreamingGZIPTarResponseHandler} for a handler which extracts
+ * the response without caching the archive first.
  */
 public abstract class GZIPTarCacheResponseHandler extends CacheResponseHandler
 {
 	@Getter private String filePath;
-	@Getter private Set<String> extractedFiles = new HashSet<>();
+	private TarExtractor extractor;
+
+	/**
+	 * Whether the archive was fully extracted into {@link #filePath}. Subclasses overriding {@link #onSuccess()} must
+	 * check this after calling through, as an extraction error is reported through {@link #onFailure()} from within it
+	 */
+	@Getter private boolean extracted;
 
 	public GZIPTarCacheResponseHandler(String filePath)
 	{
 		super(filePath + "/bundle.tar");
 
 		this.filePath = filePath;
+		this.extractor = new TarExtractor(filePath, ContentSettings.getInstance().getBundleCodecs());
+	}
+
+	public Set<String> getExtractedFiles()
+	{
+		return extractor.getExtractedFiles();
+	}
+
+	public Map<String, String> getExtractedDigests()
+	{
+		return extractor.getExtractedDigests();
 	}
 
 	@Override public void onSuccess()
 	{
 		try
 		{
-			int buffer = 8192;
-			long totalRead = 0;
-
-			InputStream stream = new BufferedInputStream(new GZIPInputStream(new FileInputStream(getContent()), buffer), buffer);
-			TarInputStream tis = new TarInputStream(stream);
-			TarEntry file;
-
-			extractedFiles.clear();
-
-			while ((file = tis.getNextEntry()) != null)
-			{
-				if (file.getName().equals("./")) continue;
-
-				String extractedFilePath = filePath + "/" + file.getName();
-				File extractFile = new File(extractedFilePath);
-
-				if (file.isDirectory())
-				{
-					extractFile.mkdirs();
-
-					continue;
-				}
-
-				// create folders if they do not exist for file
-				if (!new File(extractFile.getParent()).exists())
-				{
-					new File(extractFile.getParent()).mkdirs();
-				}
-
- 				FileOutputStream fos = new FileOutputStream(extractedFilePath);
-				BufferedOutputStream dest = new BufferedOutputStream(fos, buffer);
-
-				int count = 0;
-				byte data[] = new byte[buffer];
-
-				while ((count = tis.read(data)) != -1)
-				{
-					dest.write(data, 0, count);
-					totalRead += count;
-				}
-
-				dest.flush();
-				dest.close();
-				extractedFiles.add(extractedFilePath);
-			}
-
-			getConnectionInfo().responseLength = totalRead;
-			tis.close();
+			extractor.setCodec(ContentSettings.getInstance().getBundleCodecs().select(getConnectionInfo().responseHeaders, getConnectionInfo().connectionUrl));
+			extractor.extract(new FileInputStream(getContent()));
+			getConnectionInfo().responseLength = extractor.getTotalExtracted();
+			extracted = true;
 		}
 		catch (IOException e)
 		{
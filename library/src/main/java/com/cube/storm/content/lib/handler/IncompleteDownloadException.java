@@ -0,0 +1,17 @@
+package com.cube.storm.content.lib.handler;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a bundle download stopped before it completed, but the data received so far has been kept in a
+ * {@link DownloadJournal} and the download can be resumed by retrying the update
+ */
+public class IncompleteDownloadException extends IOException
+{
+	private static final long serialVersionUID = 1L;
+
+	public IncompleteDownloadException(String message)
+	{
+		super(message);
+	}
+}
@@ -0,0 +1,247 @@
+package com.cube.storm.content.lib.handler;
+
+import androidx.annotation.NonNull;
+
+import com.cube.storm.ContentSettings;
+
+import net.callumtaylor.asynchttp.response.ResponseHandler;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Getter;
+import okhttp3.Headers;
+
+/**
+ * Downloads a compressed tarball into the partial file of a {@link DownloadJournal}, and extracts it into
+ * {@link #filePath} once the download has completed.
+ * <p/>
+ * If the journal holds a partial download, {@link #getRequestHeaders()} adds {@code Range} and {@code If-Range} headers
+ * so the server only sends the remaining bytes. A {@code 206} response is appended to the partial file; any other
+ * response replaces it. The journal is written to disk periodically whilst downloading, and when the request finishes,
+ * so an interrupted download can be continued on the next attempt.
+ */
+public abstract class ResumableGZIPTarResponseHandler extends ResponseHandler<File>
+{
+	private static final int BUFFER_SIZE = 8192;
+	private static final long JOURNAL_INTERVAL = 1024 * 1024;
+
+	@Getter private String filePath;
+	@Getter private DownloadJournal journal;
+	private TarExtractor extractor;
+
+	/**
+	 * The offset requested from the server, or 0 if the download is not being resumed
+	 */
+	@Getter private long resumeOffset;
+
+	/**
+	 * Total bytes of the archive on disk, including any resumed data
+	 */
+	@Getter private long bytesReceived;
+
+	/**
+	 * Total size of the archive, or 0 if not known
+	 */
+	@Getter private long bytesTotal;
+
+	/**
+	 * Whether the archive was fully extracted into {@link #filePath}. Subclasses overriding {@link #onSuccess()} must
+	 * check this after calling through, as a download or extraction error is reported through {@link #onFailure()}
+	 * from within it
+	 */
+	@Getter private boolean extracted;
+
+	private OutputStream partial;
+	private long lastJournaled;
+	private IOException writeError;
+
+	public ResumableGZIPTarResponseHandler(@NonNull String filePath, @NonNull DownloadJournal journal)
+	{
+		this.filePath = filePath;
+		this.journal = journal;
+		this.extractor = new TarExtractor(filePath, ContentSettings.getInstance().getBundleCodecs());
+
+		if (journal.canResume())
+		{
+			resumeOffset = journal.getPartialFile().length();
+		}
+	}
+
+	public Set<String> getExtractedFiles()
+	{
+		return extractor.getExtractedFiles();
+	}
+
+	public Map<String, String> getExtractedDigests()
+	{
+		return extractor.getExtractedDigests();
+	}
+
+	/**
+	 * @return The headers to send with the download request
+	 */
+	@NonNull
+	public Headers getRequestHeaders()
+	{
+		Headers.Builder builder = new Headers.Builder();
+
+		if (resumeOffset > 0)
+		{
+			builder.add("Range", "bytes=" + resumeOffset + "-");
+			builder.add("If-Range", journal.getRangeValidator());
+		}
+
+		return builder.build();
+	}
+
+	@Override public void onByteChunkReceived(byte[] chunk, long chunkLength, long totalProcessed, long totalLength)
+	{
+		if (writeError != null)
+		{
+			return;
+		}
+
+		try
+		{
+			if (partial == null)
+			{
+				openPartialFile();
+			}
+
+			partial.write(chunk, 0, (int)chunkLength);
+			bytesReceived += chunkLength;
+
+			if (bytesReceived - lastJournaled >= JOURNAL_INTERVAL)
+			{
+				partial.flush();
+				writeJournal();
+			}
+		}
+		catch (IOException e)
+		{
+			writeError = e;
+		}
+	}
+
+	@Override public void onByteChunkReceivedProcessed(long totalProcessed, long totalLength)
+	{
+		super.onByteChunkReceivedProcessed(totalProcessed, totalLength);
+		bytesTotal = totalLength > 0 ? resumeOffset + totalLength : 0;
+	}
+
+	@Override public void onSuccess()
+	{
+		closePartialFile();
+
+		if (writeError != null)
+		{
+			writeError.printStackTrace();
+			onFailure();
+			return;
+		}
+
+		try
+		{
+			extractor.setCodec(ContentSettings.getInstance().getBundleCodecs().select(getConnectionInfo().responseHeaders, getConnectionInfo().connectionUrl));
+			extractor.extract(new FileInputStream(journal.getPartialFile()));
+			getConnectionInfo().responseLength = extractor.getTotalExtracted();
+			journal.delete();
+			extracted = true;
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+
+			// the archive is unusable, start from scratch on the next attempt
+			journal.delete();
+			onFailure();
+		}
+	}
+
+	@Override public void onFinish()
+	{
+		closePartialFile();
+	}
+
+	@Override public void generateContent()
+	{
+	}
+
+	@Override public File getContent()
+	{
+		return new File(filePath);
+	}
+
+	private void openPartialFile() throws IOException
+	{
+		int responseCode = getConnectionInfo().responseCode;
+
+		if (responseCode != 200 && responseCode != 206)
+		{
+			if (responseCode == 416)
+			{
+				// the partial download no longer matches the bundle on the server
+				journal.delete();
+			}
+
+			throw new IOException("Unexpected response code " + responseCode + " when downloading bundle");
+		}
+
+		File partialFile = journal.getPartialFile();
+		partialFile.getParentFile().mkdirs();
+
+		boolean append = resumeOffset > 0 && responseCode == 206;
+
+		if (!append)
+		{
+			resumeOffset = 0;
+			journal.reset(getConnectionInfo().responseHeaders.get("ETag"), getConnectionInfo().responseHeaders.get("Last-Modified"));
+		}
+
+		bytesReceived = resumeOffset;
+		lastJournaled = bytesReceived;
+		partial = new BufferedOutputStream(new FileOutputStream(partialFile, append), BUFFER_SIZE);
+		writeJournal();
+	}
+
+	private void closePartialFile()
+	{
+		if (partial == null)
+		{
+			return;
+		}
+
+		try
+		{
+			partial.close();
+		}
+		catch (IOException e)
+		{
+			if (writeError == null)
+			{
+				writeError = e;
+			}
+		}
+
+		partial = null;
+
+		if (journal.getPartialFile().exists())
+		{
+			writeJournal();
+		}
+	}
+
+	private void writeJournal()
+	{
+		journal.setBytesReceived(bytesReceived);
+		journal.save();
+		lastJournaled = bytesReceived;
+	}
+}
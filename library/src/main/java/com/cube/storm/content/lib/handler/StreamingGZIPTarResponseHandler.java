@@ -0,0 +1,177 @@
+package com.cube.storm.content.lib.handler;
+
+import com.cube.storm.ContentSettings;
+
+import net.callumtaylor.asynchttp.response.ResponseHandler;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Getter;
+
+/**
+ * Extracts a compressed tar response straight into {@link #filePath} as the bytes are received, without writing the
+ * archive to disk first. Download and extraction overlap, and the peak storage needed for an update is the size of
+ * the extracted bundle only.
+ * <p/>
+ * Received chunks are piped into a background extractor thread. The extraction is completed, and any extraction error
+ * reported through {@link #onFailure()}, in {@link #onSuccess()}. Subclasses must only use the extracted files when
+ * {@link #isExtracted()} is true.
+ */
+public abstract class StreamingGZIPTarResponseHandler extends ResponseHandler<File>
+{
+	private static final int PIPE_SIZE = 64 * 1024;
+
+	@Getter private String filePath;
+	private TarExtractor extractor;
+
+	private PipedOutputStream pipe;
+	private Thread extractorThread;
+	private volatile IOException extractionError;
+
+	/**
+	 * Whether the response was fully extracted into {@link #filePath}. Subclasses overriding {@link #onSuccess()} must
+	 * check this after calling through, as an extraction error is reported through {@link #onFailure()} from within it
+	 */
+	@Getter private boolean extracted;
+
+	public StreamingGZIPTarResponseHandler(String filePath)
+	{
+		this.filePath = filePath;
+		this.extractor = new TarExtractor(filePath, ContentSettings.getInstance().getBundleCodecs());
+	}
+
+	public Set<String> getExtractedFiles()
+	{
+		return extractor.getExtractedFiles();
+	}
+
+	public Map<String, String> getExtractedDigests()
+	{
+		return extractor.getExtractedDigests();
+	}
+
+	@Override public void onByteChunkReceived(byte[] chunk, long chunkLength, long totalProcessed, long totalLength)
+	{
+		if (extractionError != null)
+		{
+			return;
+		}
+
+		try
+		{
+			if (pipe == null)
+			{
+				startExtraction();
+			}
+
+			pipe.write(chunk, 0, (int)chunkLength);
+		}
+		catch (IOException e)
+		{
+			// the extractor has stopped reading, its own error takes precedence
+			if (extractionError == null)
+			{
+				extractionError = e;
+			}
+		}
+	}
+
+	@Override public void onSuccess()
+	{
+		finishExtraction();
+
+		if (extractionError != null)
+		{
+			extractionError.printStackTrace();
+			onFailure();
+			return;
+		}
+
+		getConnectionInfo().responseLength = extractor.getTotalExtracted();
+		extracted = true;
+	}
+
+	@Override public void onFinish()
+	{
+		finishExtraction();
+	}
+
+	@Override public void generateContent()
+	{
+	}
+
+	@Override public File getContent()
+	{
+		return new File(filePath);
+	}
+
+	private void startExtraction() throws IOException
+	{
+		// the headers have been received by the first chunk, so the codec can be picked from them
+		extractor.setCodec(ContentSettings.getInstance().getBundleCodecs().select(getConnectionInfo().responseHeaders, getConnectionInfo().connectionUrl));
+		PipedInputStream source = new PipedInputStream(PIPE_SIZE);
+		pipe = new PipedOutputStream(source);
+
+		extractorThread = new Thread(() -> {
+			try
+			{
+				extractor.extract(source);
+			}
+			catch (IOException e)
+			{
+				extractionError = e;
+			}
+			finally
+			{
+				try
+				{
+					source.close();
+				}
+				catch (IOException ignore){}
+			}
+		}, "storm-bundle-extractor");
+		extractorThread.start();
+	}
+
+	/**
+	 * Closes the pipe to signal the end of the response and waits for the extractor to write the remaining entries
+	 */
+	private void finishExtraction()
+	{
+		if (pipe == null)
+		{
+			if (extractionError == null)
+			{
+				extractionError = new EOFException("Empty bundle response");
+			}
+
+			return;
+		}
+
+		try
+		{
+			pipe.close();
+		}
+		catch (IOException ignore){}
+
+		try
+		{
+			extractorThread.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+
+			if (extractionError == null)
+			{
+				extractionError = new IOException("Interrupted while extracting bundle", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package com.cube.storm.content.lib.handler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.content.lib.codec.BundleCodec;
+import com.cube.storm.content.lib.codec.BundleCodecs;
+
+import org.kamranzafar.jtar.TarEntry;
+import org.kamranzafar.jtar.TarInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Extracts a compressed tarball into a directory on disk, computing the digest of each file as it is written.
+ * <p/>
+ * The archive is decoded with {@link #codec} if the download declared it, otherwise the codec is detected from the first
+ * bytes of the archive by {@link BundleCodecs#detect(InputStream)}.
+ * <p/>
+ * Used by both {@link GZIPTarCacheResponseHandler}, which extracts from the downloaded archive file, and
+ * {@link StreamingGZIPTarResponseHandler}, which extracts from the response body as it arrives.
+ */
+public class TarExtractor
+{
+	private static final int BUFFER_SIZE = 8192;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Digest algorithm used for {@link #extractedDigests}. Matches the algorithm of the manifest hashes
+	 */
+	public static final String DIGEST_ALGORITHM = "SHA-1";
+
+	/**
+	 * The directory the archive is extracted into
+	 */
+	@Getter private String filePath;
+
+	/**
+	 * The absolute paths of every file extracted so far
+	 */
+	@Getter private Set<String> extractedFiles = new HashSet<>();
+
+	/**
+	 * Hex digests of every file extracted so far, keyed by path relative to {@link #filePath}, for example {@code pages/1.json}
+	 */
+	@Getter private Map<String, String> extractedDigests = new HashMap<>();
+
+	/**
+	 * The total number of uncompressed bytes written to disk
+	 */
+	@Getter private long totalExtracted;
+
+	/**
+	 * The codec the archive is compressed with, or null to detect it from the archive
+	 */
+	@Getter @Setter @Nullable private BundleCodec codec;
+
+	private final BundleCodecs codecs;
+
+	/**
+	 * Creates an extractor which only understands gzipped archives
+	 */
+	public TarExtractor(@NonNull String filePath)
+	{
+		this(filePath, new BundleCodecs());
+	}
+
+	/**
+	 * @param codecs The codecs the archive may be compressed with
+	 */
+	public TarExtractor(@NonNull String filePath, @NonNull BundleCodecs codecs)
+	{
+		this.filePath = filePath;
+		this.codecs = codecs;
+	}
+
+	/**
+	 * Reads the compressed tar stream until the end of the archive, writing each entry to {@link #filePath} as it
+	 * completes. The stream is read to its end and closed once finished.
+	 *
+	 * @param compressed The compressed tar stream
+	 *
+	 * @throws IOException if the stream could not be read or a file could not be written
+	 */
+	public void extract(@NonNull InputStream compressed) throws IOException
+	{
+		InputStream source = compressed;
+		BundleCodec decoder = codec;
+
+		if (decoder == null)
+		{
+			source = new BufferedInputStream(compressed, BUFFER_SIZE);
+			decoder = codecs.detect(source);
+		}
+
+		InputStream stream = new BufferedInputStream(decoder.decode(source), BUFFER_SIZE);
+		TarInputStream tis = new TarInputStream(stream);
+
+		try
+		{
+			TarEntry file;
+			byte data[] = new byte[BUFFER_SIZE];
+			MessageDigest digest = createDigest();
+
+			extractedFiles.clear();
+			extractedDigests.clear();
+			totalExtracted = 0;
+
+			while ((file = tis.getNextEntry()) != null)
+			{
+				if (file.getName().equals("./")) continue;
+
+				String extractedFilePath = filePath + "/" + file.getName();
+				File extractFile = new File(extractedFilePath);
+
+				if (file.isDirectory())
+				{
+					extractFile.mkdirs();
+
+					continue;
+				}
+
+				// create folders if they do not exist for file
+				if (!extractFile.getParentFile().exists())
+				{
+					extractFile.getParentFile().mkdirs();
+				}
+
+				BufferedOutputStream dest = new BufferedOutputStream(new FileOutputStream(extractedFilePath), BUFFER_SIZE);
+
+				try
+				{
+					int count;
+					while ((count = tis.read(data)) != -1)
+					{
+						dest.write(data, 0, count);
+						digest.update(data, 0, count);
+						totalExtracted += count;
+					}
+
+					dest.flush();
+				}
+				finally
+				{
+					dest.close();
+				}
+
+				extractedFiles.add(extractedFilePath);
+				extractedDigests.put(relativePath(file.getName()), toHex(digest.digest()));
+			}
+
+			// consume the tar padding and compression trailer so the source is fully read
+			while (stream.read(data) != -1);
+		}
+		finally
+		{
+			tis.close();
+		}
+	}
+
+	private static MessageDigest createDigest() throws IOException
+	{
+		try
+		{
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IOException("Digest algorithm " + DIGEST_ALGORITHM + " is not available", e);
+		}
+	}
+
+	private static String relativePath(String entryName)
+	{
+		return entryName.startsWith("./") ? entryName.substring(2) : entryName;
+	}
+
+	private static String toHex(byte[] bytes)
+	{
+		char[] hex = new char[bytes.length * 2];
+
+		for (int index = 0; index < bytes.length; index++)
+		{
+			hex[index * 2] = HEX[(bytes[index] >> 4) & 0x0f];
+			hex[index * 2 + 1] = HEX[bytes[index] & 0x0f];
+		}
+
+		return new String(hex);
+	}
+}
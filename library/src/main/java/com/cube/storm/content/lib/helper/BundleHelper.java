@@ -6,7 +6,7 @@ import android.util.Log;
 
 import com.cube.storm.ContentSettings;
 import com.cube.storm.content.lib.Constants;
-import com.cube.storm.content.model.Manifest;
+import com.cube.storm.util.lib.debug.Debug;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -14,8 +14,10 @@ import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import timber.log.Timber;
 
@@ -24,19 +26,37 @@ import timber.log.Timber;
  */
 public class BundleHelper
 {
+	private static final String[] SECTIONS = {"pages", "data", "content", "languages"};
+	private static final String[] FOLDERS = {Constants.FOLDER_PAGES, Constants.FOLDER_DATA, Constants.FOLDER_CONTENT, Constants.FOLDER_LANGUAGES};
+
 	/**
-	 * Deletes all files in {@link ContentSettings#getStoragePath()}
+	 * Deletes all deployed content using {@link ContentSettings#getDeploymentManager()}
 	 */
 	public static void clearCache()
 	{
 		Timber.tag("storm_diagnostics").i("Clearing cached content");
-		String path = ContentSettings.getInstance().getStoragePath();
-		FileHelper.deleteRecursive(new File(path, "pages/"));
-		FileHelper.deleteRecursive(new File(path, "data/"));
-		FileHelper.deleteRecursive(new File(path, "content/"));
-		FileHelper.deleteRecursive(new File(path, "languages/"));
-		FileHelper.deleteRecursive(new File(path, "app.json"));
-		FileHelper.deleteRecursive(new File(path, "manifest.json"));
+		ContentSettings.getInstance().getDeploymentManager().clear();
+		ManifestCache.getInstance().invalidate();
+		// custom deployment managers may not clear the validators themselves
+		clearUpdateCheckValidators();
+
+		if (ContentSettings.getInstance().getParsedObjectCache() != null)
+		{
+			ContentSettings.getInstance().getParsedObjectCache().evictAll();
+		}
+	}
+
+	/**
+	 * Clears {@link ContentSettings#getUpdateCheckValidators()}, if conditional update checks are enabled. Call this
+	 * whenever deployed or downloaded content is discarded, so the server does not answer the next update check with
+	 * {@code 304 Not Modified} for content the app no longer has
+	 */
+	public static void clearUpdateCheckValidators()
+	{
+		if (ContentSettings.getInstance().getUpdateCheckValidators() != null)
+		{
+			ContentSettings.getInstance().getUpdateCheckValidators().clear();
+		}
 	}
 
 	public static boolean hasContent()
@@ -53,6 +73,13 @@ public class BundleHelper
 	 */
 	public static boolean integrityCheck(String contentPath)
 	{
+		ManifestIndex manifestIndex = ManifestIndex.load(new File(contentPath));
+
+		if (manifestIndex != null)
+		{
+			return integrityCheck(contentPath, manifestIndex);
+		}
+
 		boolean correct = true;
 		File manifestFile = new File(contentPath, Constants.FILE_MANIFEST);
 		String contentManifest = ContentSettings.getInstance().getFileManager().readFileAsString(manifestFile);
@@ -88,39 +115,88 @@ public class BundleHelper
 		if (!correct)
 		{
 			FileHelper.deleteRecursive(new File(contentPath));
+			clearUpdateCheckValidators();
 		}
 
 		return correct;
 	}
 
-	public static Long readContentTimestamp()
+	/**
+	 * Checks the integrity of each file in a bundle directory against the {@link ManifestIndex} of the bundle
+	 *
+	 * @return true if the bundle has the correct integrity, false if it was discarded
+	 */
+	private static boolean integrityCheck(String contentPath, ManifestIndex index)
 	{
-		Uri manifestUri = Uri.parse("cache://manifest.json");
-		Manifest manifest = ContentSettings.getInstance().getBundleBuilder().buildManifest(manifestUri);
+		boolean correct = true;
+		int size = index.size();
 
-		if (manifest == null)
+		for (int position = 0; position < size; position++)
 		{
-			return null;
+			String path = index.getPath(position);
+			String requiredHash = index.getHash(position);
+			String actualHash = ContentSettings.getInstance().getFileManager().getFileHash(contentPath + "/" + path);
+
+			if (actualHash != null && !hashesMatch(requiredHash, actualHash))
+			{
+				correct = false;
+				Log.w("LightningContent", String.format("File %s has the wrong hash! Expected %s but got %s", path, requiredHash, actualHash));
+				break;
+			}
 		}
 
-		return manifest.getTimestamp();
+		if (!correct)
+		{
+			FileHelper.deleteRecursive(new File(contentPath));
+			clearUpdateCheckValidators();
+		}
+
+		return correct;
 	}
 
-	public static Long readInitialTimestamp()
+	/**
+	 * Compares two hex digests, ignoring case and leading zeros
+	 *
+	 * @param expected The hash from the manifest
+	 * @param actual The hash of the file
+	 *
+	 * @return true if the hashes are the same
+	 */
+	public static boolean hashesMatch(String expected, String actual)
 	{
-		Uri manifestUri = Uri.parse("assets://manifest.json");
-		Manifest manifest = ContentSettings.getInstance().getBundleBuilder().buildManifest(manifestUri);
+		return stripLeadingZeros(expected).equalsIgnoreCase(stripLeadingZeros(actual));
+	}
 
-		if (manifest == null)
+	private static String stripLeadingZeros(String hash)
+	{
+		int start = 0;
+		while (start < hash.length() - 1 && hash.charAt(start) == '0')
 		{
-			return null;
+			start++;
 		}
 
-		return manifest.getTimestamp();
+		return hash.substring(start);
+	}
+
+	public static Long readContentTimestamp()
+	{
+		Uri manifestUri = Uri.parse("cache://manifest.json");
+		return ManifestCache.getInstance().getTimestamp(manifestUri);
+	}
+
+	public static Long readInitialTimestamp()
+	{
+		Uri manifestUri = Uri.parse("assets://manifest.json");
+		return ManifestCache.getInstance().getTimestamp(manifestUri);
 	}
 	
 	/**
 	 * Remove any files from a bundle directory that are inside the expected folders of the bundle but are not found in the bundle manifest
+	 * <p/>
+	 * The expected files are looked up in the {@link ManifestIndex} of the bundle, or in a set of the paths in the
+	 * manifest if the bundle has no index, so each file in the bundle directory is checked once. Subdirectories of the
+	 * folders are checked too, and are removed if none of their files are expected. Folders of sections the manifest
+	 * does not list are left untouched.
 	 *
 	 * @param path The filepath to the bundle directory
 	 * @throws JsonSyntaxException if the bundle directory doesn't contain a parseable manifest
@@ -128,53 +204,112 @@ public class BundleHelper
 	 */
 	public static void deleteUnexpectedFiles(File path)
 	{
-		File manifest = new File(path, Constants.FILE_MANIFEST);
-		JsonObject manifestJson = ContentSettings.getInstance().getFileManager().readFileAsJson(manifest).getAsJsonObject();
-		
-		// Map of folder directories
-		Map <String, String> folderDirectories = new HashMap <>();
-		folderDirectories.put("pages", Constants.FOLDER_PAGES);
-		folderDirectories.put("languages", Constants.FOLDER_LANGUAGES);
-		folderDirectories.put("content", Constants.FOLDER_CONTENT);
-		folderDirectories.put("data", Constants.FOLDER_DATA);
-		
-		// Create map of expected data
-		Map <String, String[]> expectedContent = new HashMap <>();
-		for (Map.Entry<String, String> entry : folderDirectories.entrySet())
+		List<File> unexpectedFiles = new ArrayList<>();
+		ManifestIndex manifestIndex = ManifestIndex.load(path);
+
+		if (manifestIndex != null)
 		{
-			expectedContent.put(entry.getKey(), new File(path + "/" + entry.getValue() + "/").list());
+			for (String folder : FOLDERS)
+			{
+				if (manifestIndex.covers(folder + "/"))
+				{
+					collectUnexpectedFiles(new File(path, folder), folder, manifestIndex::contains, unexpectedFiles);
+				}
+			}
 		}
-		
-		for (Map.Entry<String, String[]> entry : expectedContent.entrySet())
+		else
 		{
-			String key = entry.getKey();
-			if(!manifestJson.has(key))
+			File manifest = new File(path, Constants.FILE_MANIFEST);
+			JsonObject manifestJson = ContentSettings.getInstance().getFileManager().readFileAsJson(manifest).getAsJsonObject();
+			Set<String> expectedFiles = new HashSet<>();
+			List<String> folders = new ArrayList<>();
+
+			for (int index = 0; index < SECTIONS.length; index++)
 			{
-				continue;
+				if (!manifestJson.has(SECTIONS[index]))
+				{
+					continue;
+				}
+
+				folders.add(FOLDERS[index]);
+
+				for (JsonElement e : manifestJson.get(SECTIONS[index]).getAsJsonArray())
+				{
+					expectedFiles.add(FOLDERS[index] + "/" + e.getAsJsonObject().get("src").getAsString());
+				}
 			}
-			String[] filePaths = entry.getValue();
-			if(filePaths == null)
+
+			for (String folder : folders)
 			{
-				continue;
+				collectUnexpectedFiles(new File(path, folder), folder, expectedFiles::contains, unexpectedFiles);
 			}
-			JsonArray pagesList = manifestJson.get(key).getAsJsonArray();
-			
-			for (JsonElement e : pagesList)
+		}
+
+		if (!unexpectedFiles.isEmpty())
+		{
+			Timber.tag("storm_diagnostics").i(String.format("Deleting %d unexpected files from %s", unexpectedFiles.size(), path.getName()));
+		}
+
+		for (File file : unexpectedFiles)
+		{
+			if (!file.delete())
 			{
-				String filename = e.getAsJsonObject().get("src").getAsString();
-				
-				int size = filePaths.length;
-				for (int index = 0; index < size; index++)
-				{
-					if (filePaths[index] != null && filePaths[index].equals(filename))
-					{
-						filePaths[index] = null;
-						break;
-					}
-				}
+				Debug.out("%s was not deleted successfully", file.getName());
 			}
-			
-			FileHelper.removeFiles(path + "/" + folderDirectories.get(key) + "/", filePaths);
 		}
 	}
+
+	/**
+	 * Adds the files in {@param directory} that are not expected to {@param unexpectedFiles}, followed by the
+	 * subdirectories that only contain unexpected files, so each directory is deleted after its contents
+	 *
+	 * @param relativePath The path of {@param directory} relative to the bundle directory
+	 *
+	 * @return true if none of the files in the directory are expected
+	 */
+	private static boolean collectUnexpectedFiles(File directory, String relativePath, ExpectedFiles expectedFiles, List<File> unexpectedFiles)
+	{
+		String[] names = directory.list();
+
+		if (names == null)
+		{
+			return false;
+		}
+
+		boolean unexpected = true;
+
+		for (String name : names)
+		{
+			File file = new File(directory, name);
+			String filePath = relativePath + "/" + name;
+
+			if (expectedFiles.contains(filePath))
+			{
+				unexpected = false;
+			}
+			else if (!file.isDirectory() || collectUnexpectedFiles(file, filePath, expectedFiles, unexpectedFiles))
+			{
+				unexpectedFiles.add(file);
+			}
+			else
+			{
+				unexpected = false;
+			}
+		}
+
+		return unexpected;
+	}
+
+	/**
+	 * Lookup of the files listed in a bundle manifest
+	 */
+	private interface ExpectedFiles
+	{
+		/**
+		 * @param path The path of a file relative to the bundle directory, for example {@code pages/1.json}
+		 *
+		 * @return true if the file is listed in the manifest
+		 */
+		boolean contains(String path);
+	}
 }
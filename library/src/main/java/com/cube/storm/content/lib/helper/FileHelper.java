@@ -1,5 +1,7 @@
 package com.cube.storm.content.lib.helper;
 
+import android.system.ErrnoException;
+import android.system.Os;
 import android.text.TextUtils;
 import com.cube.storm.content.lib.Constants;
 import com.cube.storm.util.lib.debug.Debug;
@@ -12,6 +14,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Helper class for deleting files
@@ -38,22 +42,61 @@ public class FileHelper
 		}
 		else
 		{
-			int buffer = 8192;
+			copyFile(sourceLocation, targetLocation);
+		}
+	}
 
-			InputStream in = new BufferedInputStream(new FileInputStream(sourceLocation), buffer);
-			OutputStream out = new BufferedOutputStream(new FileOutputStream(targetLocation), buffer);
+	public static void copyFile(File sourceLocation, File targetLocation) throws IOException
+	{
+		int buffer = 8192;
 
-			byte[] buf = new byte[buffer];
-			int len;
+		InputStream in = new BufferedInputStream(new FileInputStream(sourceLocation), buffer);
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(targetLocation), buffer);
 
-			while ((len = in.read(buf)) > 0)
-			{
-				out.write(buf, 0, len);
-			}
+		byte[] buf = new byte[buffer];
+		int len;
 
-			in.close();
-			out.flush();
-			out.close();
+		while ((len = in.read(buf)) > 0)
+		{
+			out.write(buf, 0, len);
+		}
+
+		in.close();
+		out.flush();
+		out.close();
+	}
+
+	/**
+	 * Creates a hard link to a file, falling back to copying the file if it can not be linked, for example because the
+	 * target is on a different file system
+	 *
+	 * @param sourceLocation The existing file
+	 * @param targetLocation The new file to create
+	 */
+	public static void linkFile(File sourceLocation, File targetLocation) throws IOException
+	{
+		try
+		{
+			Os.link(sourceLocation.getAbsolutePath(), targetLocation.getAbsolutePath());
+		}
+		catch (ErrnoException e)
+		{
+			copyFile(sourceLocation, targetLocation);
+		}
+	}
+
+	/**
+	 * Moves a file by renaming it, falling back to copying and deleting the file if it can not be renamed
+	 *
+	 * @param sourceLocation The existing file
+	 * @param targetLocation The new location of the file
+	 */
+	public static void moveFile(File sourceLocation, File targetLocation) throws IOException
+	{
+		if (!sourceLocation.renameTo(targetLocation))
+		{
+			copyFile(sourceLocation, targetLocation);
+			sourceLocation.delete();
 		}
 	}
 
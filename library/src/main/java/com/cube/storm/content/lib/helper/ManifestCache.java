@@ -0,0 +1,291 @@
+package com.cube.storm.content.lib.helper;
+
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.ContentSettings;
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.manager.DeploymentManager;
+import com.cube.storm.content.model.Manifest;
+import com.cube.storm.util.lib.resolver.Resolver;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * Process-wide cache of parsed {@link Manifest} objects, keyed by the Uri the manifest resolves to. For example
+ * {@code cache://manifest.json} is cached as either the deployed {@code file://} manifest or the {@code assets://}
+ * manifest it falls back to.
+ * <p/>
+ * The cache is invalidated when a bundle is deployed and when {@link BundleHelper#clearCache()} is called.
+ */
+public class ManifestCache
+{
+	private static volatile ManifestCache instance;
+
+	public static ManifestCache getInstance()
+	{
+		if (instance == null)
+		{
+			synchronized (ManifestCache.class)
+			{
+				if (instance == null)
+				{
+					instance = new ManifestCache();
+				}
+			}
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Folder in {@link ContentSettings#getStoragePath()} holding the index of the bundled assets manifest, used when no
+	 * content has been deployed
+	 */
+	public static final String ASSETS_INDEX_FOLDER = "assets-index";
+
+	private volatile Entries entries = new Entries(0);
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Gets the parsed manifest for a Uri, parsing it with {@link com.cube.storm.content.lib.parser.BundleBuilder#buildManifest(Uri)}
+	 * if it is not cached
+	 *
+	 * @param manifestUri The manifest Uri, for example {@code cache://manifest.json}
+	 *
+	 * @return The manifest, or null if it could not be loaded
+	 */
+	@Nullable
+	public Manifest getManifest(@NonNull Uri manifestUri)
+	{
+		Uri resolvedUri = resolve(manifestUri);
+		String key = resolvedUri.toString();
+		Entries current = entries;
+		Manifest manifest = current.manifests.get(key);
+
+		if (manifest != null)
+		{
+			hitCount.incrementAndGet();
+			return manifest;
+		}
+
+		missCount.incrementAndGet();
+
+		manifest = ContentSettings.getInstance().getBundleBuilder().buildManifest(resolvedUri);
+
+		// a manifest loaded before the cache was invalidated is stored in the discarded entries
+		if (manifest != null)
+		{
+			current.manifests.put(key, manifest);
+		}
+
+		return manifest;
+	}
+
+	/**
+	 * Gets the timestamp of the manifest for a Uri. If the full manifest is not cached, only the timestamp is read
+	 * using {@link com.cube.storm.content.lib.parser.BundleBuilder#buildManifestTimestamp(Uri)}
+	 *
+	 * @param manifestUri The manifest Uri, for example {@code cache://manifest.json}
+	 *
+	 * @return The manifest timestamp, or null if it could not be loaded
+	 */
+	@Nullable
+	public Long getTimestamp(@NonNull Uri manifestUri)
+	{
+		Uri resolvedUri = resolve(manifestUri);
+		String key = resolvedUri.toString();
+		Entries current = entries;
+		Manifest manifest = current.manifests.get(key);
+
+		if (manifest != null)
+		{
+			hitCount.incrementAndGet();
+			return manifest.getTimestamp();
+		}
+
+		Long timestamp = current.timestamps.get(key);
+
+		if (timestamp != null)
+		{
+			hitCount.incrementAndGet();
+			return timestamp;
+		}
+
+		missCount.incrementAndGet();
+
+		timestamp = ContentSettings.getInstance().getBundleBuilder().buildManifestTimestamp(resolvedUri);
+
+		if (timestamp != null)
+		{
+			current.timestamps.put(key, timestamp);
+		}
+
+		return timestamp;
+	}
+
+	/**
+	 * Gets the {@link ManifestIndex} of the deployed content in {@link com.cube.storm.content.lib.manager.DeploymentManager#getActiveContentPath()}.
+	 * <p/>
+	 * The index is built the first time it is needed if the deployed content has a manifest but no index, for example
+	 * content deployed by an older version of the library. If no manifest is deployed, the index is built from the
+	 * bundled {@code assets://manifest.json} into {@link #ASSETS_INDEX_FOLDER} instead.
+	 *
+	 * @return The index, or null if there is no manifest to index
+	 */
+	@Nullable
+	public ManifestIndex getActiveIndex()
+	{
+		Entries current = entries;
+
+		if (!current.activeIndexLoaded)
+		{
+			synchronized (current)
+			{
+				if (!current.activeIndexLoaded)
+				{
+					current.activeIndex = loadActiveIndex();
+					current.activeIndexLoaded = true;
+				}
+			}
+		}
+
+		return current.activeIndex;
+	}
+
+	/**
+	 * Removes every cached manifest
+	 */
+	public void invalidate()
+	{
+		synchronized (this)
+		{
+			// anything still loading into the previous entries is discarded with them
+			entries = new Entries(entries.generation + 1);
+		}
+	}
+
+	/**
+	 * @return A counter which changes every time the cache is invalidated, for caches derived from the deployed content
+	 */
+	public int getGeneration()
+	{
+		return entries.generation;
+	}
+
+	/**
+	 * @return The number of calls to {@link #getManifest(Uri)} and {@link #getTimestamp(Uri)} served from the cache
+	 */
+	public long getHitCount()
+	{
+		return hitCount.get();
+	}
+
+	/**
+	 * @return The number of calls to {@link #getManifest(Uri)} and {@link #getTimestamp(Uri)} that had to read the manifest
+	 */
+	public long getMissCount()
+	{
+		return missCount.get();
+	}
+
+	@Nullable
+	private ManifestIndex loadActiveIndex()
+	{
+		DeploymentManager deploymentManager = ContentSettings.getInstance().getDeploymentManager();
+		File contentPath = deploymentManager.getActiveContentPath();
+		ManifestIndex index = ManifestIndex.load(contentPath);
+
+		if (index != null)
+		{
+			return index;
+		}
+
+		if (new File(contentPath, Constants.FILE_MANIFEST).exists())
+		{
+			Timber.tag("storm_diagnostics").i("Building missing index of the deployed manifest");
+			deploymentManager.buildIndex(contentPath);
+			return ManifestIndex.load(contentPath);
+		}
+
+		Uri assetsManifest = Uri.parse("assets://" + Constants.FILE_MANIFEST);
+		Long timestamp = getTimestamp(assetsManifest);
+
+		if (timestamp == null)
+		{
+			return null;
+		}
+
+		File assetsIndexPath = new File(ContentSettings.getInstance().getStoragePath(), ASSETS_INDEX_FOLDER);
+		index = ManifestIndex.load(assetsIndexPath);
+
+		if (index != null && index.getTimestamp() == timestamp)
+		{
+			return index;
+		}
+
+		InputStream stream = ContentSettings.getInstance().getFileFactory().loadFromUri(assetsManifest);
+
+		if (stream == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			Timber.tag("storm_diagnostics").i("Building index of the bundled manifest");
+			assetsIndexPath.mkdirs();
+			// files are checked for in the deployed content, so anything deployed without a manifest still takes precedence
+			ManifestIndex.write(stream, new File(assetsIndexPath, Constants.FILE_MANIFEST_INDEX), contentPath, null);
+			return ManifestIndex.load(assetsIndexPath);
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
+
+		return null;
+	}
+
+	private Uri resolve(Uri uri)
+	{
+		Resolver resolver = ContentSettings.getInstance().getUriResolvers().get(uri.getScheme());
+
+		if (resolver != null)
+		{
+			Uri resolvedUri = resolver.resolveUri(uri);
+
+			if (resolvedUri != null)
+			{
+				return resolvedUri;
+			}
+		}
+
+		return uri;
+	}
+
+	/**
+	 * Everything cached for one generation of the deployed content, replaced as a whole by {@link #invalidate()}
+	 */
+	private static class Entries
+	{
+		private final int generation;
+		private final Map<String, Manifest> manifests = new ConcurrentHashMap<>();
+		private final Map<String, Long> timestamps = new ConcurrentHashMap<>();
+		private volatile ManifestIndex activeIndex;
+		private volatile boolean activeIndexLoaded;
+
+		private Entries(int generation)
+		{
+			this.generation = generation;
+		}
+	}
+}
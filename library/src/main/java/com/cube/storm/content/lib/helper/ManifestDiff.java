@@ -0,0 +1,106 @@
+package com.cube.storm.content.lib.helper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.model.Manifest;
+import com.cube.storm.content.model.Manifest.FileDescriptor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * The file level difference between the manifest of the deployed content and a manifest from the server
+ * <p/>
+ * Files are identified by their path relative to the bundle directory, for example {@code pages/1.json}
+ */
+public class ManifestDiff
+{
+	/**
+	 * Files that are new in the remote manifest, or whose hash has changed
+	 */
+	@Getter private final List<String> changedFiles = new ArrayList<>();
+
+	/**
+	 * Files in the local manifest that are not in the remote manifest
+	 */
+	@Getter private final List<String> removedFiles = new ArrayList<>();
+
+	/**
+	 * Compares the hashes of every file in two manifests
+	 *
+	 * @param local The manifest of the deployed content, or null if there is no content
+	 * @param remote The manifest from the server
+	 *
+	 * @return The files that have to be downloaded and deleted to turn the local content into the remote content
+	 */
+	@NonNull
+	public static ManifestDiff compare(@Nullable Manifest local, @NonNull Manifest remote)
+	{
+		Map<String, String> localHashes = new HashMap<>();
+
+		if (local != null)
+		{
+			putHashes(localHashes, Constants.FOLDER_PAGES, local.getPages());
+			putHashes(localHashes, Constants.FOLDER_DATA, local.getData());
+			putHashes(localHashes, Constants.FOLDER_CONTENT, local.getContent());
+			putHashes(localHashes, Constants.FOLDER_LANGUAGES, local.getLanguages());
+		}
+
+		ManifestDiff diff = new ManifestDiff();
+		diff.compareSection(localHashes, Constants.FOLDER_PAGES, remote.getPages());
+		diff.compareSection(localHashes, Constants.FOLDER_DATA, remote.getData());
+		diff.compareSection(localHashes, Constants.FOLDER_CONTENT, remote.getContent());
+		diff.compareSection(localHashes, Constants.FOLDER_LANGUAGES, remote.getLanguages());
+
+		// anything left over is no longer in the remote bundle
+		diff.removedFiles.addAll(localHashes.keySet());
+
+		return diff;
+	}
+
+	private static void putHashes(Map<String, String> hashes, String folder, @Nullable List<FileDescriptor> files)
+	{
+		if (files == null)
+		{
+			return;
+		}
+
+		for (FileDescriptor file : files)
+		{
+			hashes.put(folder + "/" + file.getSrc(), file.getHash());
+		}
+	}
+
+	private void compareSection(Map<String, String> localHashes, String folder, @Nullable List<FileDescriptor> files)
+	{
+		if (files == null)
+		{
+			return;
+		}
+
+		for (FileDescriptor file : files)
+		{
+			String path = folder + "/" + file.getSrc();
+			String localHash = localHashes.remove(path);
+
+			if (localHash == null || !BundleHelper.hashesMatch(file.getHash(), localHash))
+			{
+				changedFiles.add(path);
+			}
+		}
+	}
+
+	/**
+	 * @return true if no files have to be downloaded or deleted
+	 */
+	public boolean isEmpty()
+	{
+		return changedFiles.isEmpty() && removedFiles.isEmpty();
+	}
+}
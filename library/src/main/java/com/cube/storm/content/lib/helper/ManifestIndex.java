@@ -0,0 +1,655 @@
+package com.cube.storm.content.lib.helper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.content.lib.Constants;
+import com.google.gson.stream.JsonReader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * Compact binary index of the files listed in a bundle's {@code manifest.json}, stored next to the manifest as
+ * {@link Constants#FILE_MANIFEST_INDEX}.
+ * <p/>
+ * The index holds a table of the bundle folders, followed by one fixed size record per file sorted by folder and path,
+ * and a table of the UTF-8 file paths relative to their folder. Hashes are stored as raw digest bytes. The file is
+ * memory mapped when loaded, and {@link #getHash(String)} is a binary search over the records, so no json is parsed
+ * after the index has been built.
+ * <p/>
+ * The folder table only lists the folders of the sections present in the manifest, so {@link #covers(String)} is false
+ * for files in a folder whose section the manifest does not list.
+ * <p/>
+ * The high bit of each record's folder byte is set if the file existed in the bundle directory when the index was built,
+ * so {@link #isPresent(String)} can tell whether a file is deployed or has to be loaded from the bundled assets without
+ * touching the file system.
+ * <p/>
+ * Layout (big endian)
+ * <pre>
+ int magic, long timestamp, byte digestLength, byte folderCount
+ folderCount * (short length, byte[length] folderName)
+ int entryCount, int namesLength
+ entryCount * (byte folder, int nameOffset, short nameLength, byte[digestLength] digest)
+ byte[namesLength] names
+ * </pre>
+ */
+public class ManifestIndex
+{
+	private static final int MAGIC = 0x534d4933;
+	private static final int PRESENT_FLAG = 0x80;
+	private static final int FOLDER_MASK = 0x7f;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private static final String[] SECTIONS = {"pages", "data", "content", "languages"};
+	private static final String[] FOLDERS = {Constants.FOLDER_PAGES, Constants.FOLDER_DATA, Constants.FOLDER_CONTENT, Constants.FOLDER_LANGUAGES};
+
+	/**
+	 * Builds the index for the manifest in a bundle directory and writes it into the same directory
+	 *
+	 * @param contentPath The bundle directory
+	 *
+	 * @return true if the index was written, false if the bundle has no manifest or the manifest could not be indexed
+	 */
+	public static boolean build(@NonNull File contentPath)
+	{
+		return build(contentPath, null);
+	}
+
+	/**
+	 * Builds the index for the manifest in a bundle directory and writes it into the same directory
+	 *
+	 * @param contentPath The bundle directory
+	 * @param blobPath The directory of a content addressed store to check for the presence of each file by its hash,
+	 * or null to check for each file by its path in {@param contentPath}
+	 *
+	 * @return true if the index was written, false if the bundle has no manifest or the manifest could not be indexed
+	 */
+	public static boolean build(@NonNull File contentPath, @Nullable File blobPath)
+	{
+		File manifest = new File(contentPath, Constants.FILE_MANIFEST);
+		File index = new File(contentPath, Constants.FILE_MANIFEST_INDEX);
+
+		if (!manifest.exists())
+		{
+			index.delete();
+			return false;
+		}
+
+		try
+		{
+			write(new FileInputStream(manifest), index, contentPath, blobPath);
+			return true;
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			index.delete();
+		}
+
+		return false;
+	}
+
+	/**
+	 * Builds an index from a manifest json stream
+	 *
+	 * @param manifest The manifest json stream. The stream is closed once read
+	 * @param target The file to write the index to
+	 * @param contentPath The directory to check for the presence of each file, or null to mark every file as not present
+	 * @param blobPath The directory of a content addressed store to check for the presence of each file by its hash
+	 * instead of {@param contentPath}, or null
+	 *
+	 * @throws IOException if the manifest could not be read, or contains hashes that are not hex digests of the same length
+	 */
+	public static void write(@NonNull InputStream manifest, @NonNull File target, @Nullable File contentPath, @Nullable File blobPath) throws IOException
+	{
+		List<Record> records = new ArrayList<>();
+		boolean[] sections = new boolean[SECTIONS.length];
+		long timestamp = 0;
+		int digestLength = -1;
+
+		JsonReader reader = new JsonReader(new InputStreamReader(new BufferedInputStream(manifest, 8192), UTF_8));
+
+		try
+		{
+			reader.beginObject();
+
+			while (reader.hasNext())
+			{
+				String name = reader.nextName();
+				int folder = indexOf(SECTIONS, name);
+
+				if ("timestamp".equals(name))
+				{
+					timestamp = reader.nextLong();
+				}
+				else if (folder > -1)
+				{
+					sections[folder] = true;
+					reader.beginArray();
+
+					while (reader.hasNext())
+					{
+						String src = null;
+						String hash = null;
+
+						reader.beginObject();
+
+						while (reader.hasNext())
+						{
+							String field = reader.nextName();
+
+							if ("src".equals(field))
+							{
+								src = reader.nextString();
+							}
+							else if ("hash".equals(field))
+							{
+								hash = reader.nextString();
+							}
+							else
+							{
+								reader.skipValue();
+							}
+						}
+
+						reader.endObject();
+
+						if (src == null || hash == null)
+						{
+							continue;
+						}
+
+						byte[] digest = fromHex(hash);
+
+						if (digestLength == -1)
+						{
+							digestLength = digest.length;
+						}
+						else if (digestLength != digest.length)
+						{
+							throw new IOException("Manifest hashes are not all the same length");
+						}
+
+						boolean present;
+						if (blobPath != null)
+						{
+							present = new File(blobPath, toHex(digest)).exists();
+						}
+						else
+						{
+							present = contentPath != null && new File(contentPath, FOLDERS[folder] + "/" + src).exists();
+						}
+
+						records.add(new Record(folder, src.getBytes(UTF_8), digest, present));
+					}
+
+					reader.endArray();
+				}
+				else
+				{
+					reader.skipValue();
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		Collections.sort(records);
+
+		File tmp = new File(target.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 8192));
+
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeLong(timestamp);
+			out.writeByte(Math.max(digestLength, 0));
+			// the records refer to the folders by their position in the table, which only lists the present sections
+			int[] folderPositions = new int[FOLDERS.length];
+			int folderCount = 0;
+
+			for (int folder = 0; folder < FOLDERS.length; folder++)
+			{
+				if (sections[folder])
+				{
+					folderPositions[folder] = folderCount++;
+				}
+			}
+
+			out.writeByte(folderCount);
+
+			for (int folder = 0; folder < FOLDERS.length; folder++)
+			{
+				if (sections[folder])
+				{
+					byte[] bytes = FOLDERS[folder].getBytes(UTF_8);
+					out.writeShort(bytes.length);
+					out.write(bytes);
+				}
+			}
+
+			int namesLength = 0;
+			for (Record record : records)
+			{
+				namesLength += record.name.length;
+			}
+
+			out.writeInt(records.size());
+			out.writeInt(namesLength);
+
+			int nameOffset = 0;
+			for (Record record : records)
+			{
+				int folder = folderPositions[record.folder];
+				out.writeByte(record.present ? folder | PRESENT_FLAG : folder);
+				out.writeInt(nameOffset);
+				out.writeShort(record.name.length);
+				out.write(record.digest);
+				nameOffset += record.name.length;
+			}
+
+			for (Record record : records)
+			{
+				out.write(record.name);
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+
+		if (!tmp.renameTo(target))
+		{
+			tmp.delete();
+			throw new IOException("Could not write manifest index " + target);
+		}
+	}
+
+	/**
+	 * Memory maps the index of a bundle directory
+	 *
+	 * @param contentPath The bundle directory
+	 *
+	 * @return The index, or null if the directory has no valid index
+	 */
+	@Nullable
+	public static ManifestIndex load(@NonNull File contentPath)
+	{
+		File index = new File(contentPath, Constants.FILE_MANIFEST_INDEX);
+
+		if (!index.exists())
+		{
+			return null;
+		}
+
+		try (RandomAccessFile file = new RandomAccessFile(index, "r"))
+		{
+			FileChannel channel = file.getChannel();
+			return new ManifestIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
+
+		return null;
+	}
+
+	private final ByteBuffer buffer;
+	private final String[] folders;
+	private final int digestLength;
+	private final int recordLength;
+	private final int entryCount;
+	private final int entriesOffset;
+	private final int namesOffset;
+
+	/**
+	 * Timestamp of the indexed manifest
+	 */
+	@Getter private final long timestamp;
+
+	private ManifestIndex(ByteBuffer buffer) throws IOException
+	{
+		this.buffer = buffer;
+
+		if (buffer.getInt(0) != MAGIC)
+		{
+			throw new IOException("Not a manifest index");
+		}
+
+		timestamp = buffer.getLong(4);
+		digestLength = buffer.get(12) & 0xff;
+		folders = new String[buffer.get(13) & 0xff];
+
+		int offset = 14;
+		for (int index = 0; index < folders.length; index++)
+		{
+			int length = buffer.getShort(offset) & 0xffff;
+			folders[index] = readString(offset + 2, length);
+			offset += 2 + length;
+		}
+
+		entryCount = buffer.getInt(offset);
+		entriesOffset = offset + 8;
+		recordLength = 7 + digestLength;
+		namesOffset = entriesOffset + entryCount * recordLength;
+	}
+
+	/**
+	 * @return The number of files in the index
+	 */
+	public int size()
+	{
+		return entryCount;
+	}
+
+	/**
+	 * @param index The position of the file in the index
+	 *
+	 * @return The path of the file relative to the bundle directory, for example {@code pages/1.json}
+	 */
+	@NonNull
+	public String getPath(int index)
+	{
+		return getFolder(index) + "/" + getName(index);
+	}
+
+	/**
+	 * @param index The position of the file in the index
+	 *
+	 * @return The folder of the file, for example {@code pages}
+	 */
+	@NonNull
+	public String getFolder(int index)
+	{
+		return folders[buffer.get(entriesOffset + index * recordLength) & FOLDER_MASK];
+	}
+
+	/**
+	 * @param index The position of the file in the index
+	 *
+	 * @return The path of the file relative to its folder, for example {@code 1.json}
+	 */
+	@NonNull
+	public String getName(int index)
+	{
+		int record = entriesOffset + index * recordLength;
+		return readString(namesOffset + buffer.getInt(record + 1), buffer.getShort(record + 5) & 0xffff);
+	}
+
+	/**
+	 * @param index The position of the file in the index
+	 *
+	 * @return The lowercase hex hash of the file
+	 */
+	@NonNull
+	public String getHash(int index)
+	{
+		int record = entriesOffset + index * recordLength + 7;
+		char[] hex = new char[digestLength * 2];
+
+		for (int position = 0; position < digestLength; position++)
+		{
+			byte value = buffer.get(record + position);
+			hex[position * 2] = HEX[(value >> 4) & 0x0f];
+			hex[position * 2 + 1] = HEX[value & 0x0f];
+		}
+
+		return new String(hex);
+	}
+
+	/**
+	 * Looks up the hash of a file
+	 *
+	 * @param path The path of the file relative to the bundle directory, for example {@code pages/1.json}
+	 *
+	 * @return The lowercase hex hash of the file, or null if it is not in the index
+	 */
+	@Nullable
+	public String getHash(@NonNull String path)
+	{
+		int index = indexOf(path);
+		return index > -1 ? getHash(index) : null;
+	}
+
+	/**
+	 * @param path The path of a file relative to the bundle directory, for example {@code pages/1.json}
+	 *
+	 * @return true if the file is in one of the folders listed by the index, so {@link #contains(String)} is authoritative for it
+	 */
+	public boolean covers(@NonNull String path)
+	{
+		int separator = path.indexOf('/');
+		return separator > -1 && indexOf(folders, path.substring(0, separator)) > -1;
+	}
+
+	/**
+	 * @param index The position of the file in the index
+	 *
+	 * @return true if the file existed in the bundle directory when the index was built
+	 */
+	public boolean isPresent(int index)
+	{
+		return (buffer.get(entriesOffset + index * recordLength) & PRESENT_FLAG) != 0;
+	}
+
+	/**
+	 * @param path The path of the file relative to the bundle directory, for example {@code pages/1.json}
+	 *
+	 * @return true if the file is in the index and existed in the bundle directory when the index was built
+	 */
+	public boolean isPresent(@NonNull String path)
+	{
+		int index = indexOf(path);
+		return index > -1 && isPresent(index);
+	}
+
+	/**
+	 * @param path The path of the file relative to the bundle directory, for example {@code pages/1.json}
+	 *
+	 * @return true if the file is in the index
+	 */
+	public boolean contains(@NonNull String path)
+	{
+		return indexOf(path) > -1;
+	}
+
+	/**
+	 * Finds the position of a file in the index with a binary search
+	 *
+	 * @param path The path of the file relative to the bundle directory, for example {@code pages/1.json}
+	 *
+	 * @return The position of the file, or -1 if it is not in the index
+	 */
+	public int indexOf(@NonNull String path)
+	{
+		int separator = path.indexOf('/');
+
+		if (separator < 0)
+		{
+			return -1;
+		}
+
+		int folder = indexOf(folders, path.substring(0, separator));
+
+		if (folder < 0)
+		{
+			return -1;
+		}
+
+		byte[] name = path.substring(separator + 1).getBytes(UTF_8);
+		int low = 0;
+		int high = entryCount - 1;
+
+		while (low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			int compare = compare(middle, folder, name);
+
+			if (compare < 0)
+			{
+				low = middle + 1;
+			}
+			else if (compare > 0)
+			{
+				high = middle - 1;
+			}
+			else
+			{
+				return middle;
+			}
+		}
+
+		return -1;
+	}
+
+	private int compare(int index, int folder, byte[] name)
+	{
+		int record = entriesOffset + index * recordLength;
+		int recordFolder = buffer.get(record) & FOLDER_MASK;
+
+		if (recordFolder != folder)
+		{
+			return recordFolder < folder ? -1 : 1;
+		}
+
+		int offset = namesOffset + buffer.getInt(record + 1);
+		int length = buffer.getShort(record + 5) & 0xffff;
+		int common = Math.min(length, name.length);
+
+		for (int position = 0; position < common; position++)
+		{
+			int a = buffer.get(offset + position) & 0xff;
+			int b = name[position] & 0xff;
+
+			if (a != b)
+			{
+				return a < b ? -1 : 1;
+			}
+		}
+
+		return length - name.length;
+	}
+
+	private String readString(int offset, int length)
+	{
+		byte[] bytes = new byte[length];
+
+		for (int position = 0; position < length; position++)
+		{
+			bytes[position] = buffer.get(offset + position);
+		}
+
+		return new String(bytes, UTF_8);
+	}
+
+	private static int indexOf(String[] values, String value)
+	{
+		for (int index = 0; index < values.length; index++)
+		{
+			if (values[index].equals(value))
+			{
+				return index;
+			}
+		}
+
+		return -1;
+	}
+
+	private static String toHex(byte[] bytes)
+	{
+		char[] hex = new char[bytes.length * 2];
+
+		for (int position = 0; position < bytes.length; position++)
+		{
+			hex[position * 2] = HEX[(bytes[position] >> 4) & 0x0f];
+			hex[position * 2 + 1] = HEX[bytes[position] & 0x0f];
+		}
+
+		return new String(hex);
+	}
+
+	private static byte[] fromHex(String hex) throws IOException
+	{
+		if (hex.length() % 2 != 0)
+		{
+			throw new IOException("Hash " + hex + " is not a hex digest");
+		}
+
+		byte[] bytes = new byte[hex.length() / 2];
+
+		for (int index = 0; index < bytes.length; index++)
+		{
+			int high = Character.digit(hex.charAt(index * 2), 16);
+			int low = Character.digit(hex.charAt(index * 2 + 1), 16);
+
+			if (high < 0 || low < 0)
+			{
+				throw new IOException("Hash " + hex + " is not a hex digest");
+			}
+
+			bytes[index] = (byte)((high << 4) | low);
+		}
+
+		return bytes;
+	}
+
+	private static class Record implements Comparable<Record>
+	{
+		private final int folder;
+		private final byte[] name;
+		private final byte[] digest;
+		private final boolean present;
+
+		private Record(int folder, byte[] name, byte[] digest, boolean present)
+		{
+			this.folder = folder;
+			this.name = name;
+			this.digest = digest;
+			this.present = present;
+		}
+
+		@Override public int compareTo(Record other)
+		{
+			if (folder != other.folder)
+			{
+				return folder < other.folder ? -1 : 1;
+			}
+
+			int common = Math.min(name.length, other.name.length);
+
+			for (int position = 0; position < common; position++)
+			{
+				int a = name[position] & 0xff;
+				int b = other.name[position] & 0xff;
+
+				if (a != b)
+				{
+					return a < b ? -1 : 1;
+				}
+			}
+
+			return name.length - other.name.length;
+		}
+	}
+}
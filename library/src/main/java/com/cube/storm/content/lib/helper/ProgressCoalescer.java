@@ -0,0 +1,144 @@
+package com.cube.storm.content.lib.helper;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.content.model.UpdateContentProgress;
+import com.cube.storm.content.model.UpdateContentProgress.Phase;
+
+import io.reactivex.Observer;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Coalesces the progress of an update before passing it on, so a download reports its progress a few times a second
+ * rather than for every chunk received. Each progress event is observed by the app and, for background updates, written
+ * to the WorkManager database by {@link com.cube.storm.content.lib.worker.ContentUpdateWorker}.
+ * <p/>
+ * Progress is delivered once {@code intervalMillis} have passed or it has advanced by {@code percentStep} percent since
+ * the last delivery. The first progress of each phase, and the progress which completes a phase, are always delivered.
+ * The latest progress which was held back is delivered before the phase changes and before the update completes or
+ * fails, so the observer always sees the final progress. Progress which is the same as the last delivered is dropped.
+ * <p/>
+ * Progress offered with {@link #onProgress(Phase, long, long)} is only allocated once it is delivered.
+ */
+public class ProgressCoalescer implements Observer<UpdateContentProgress>
+{
+	private final Observer<UpdateContentProgress> downstream;
+	private final long intervalMillis;
+	private final float percentStep;
+
+	@Nullable private UpdateContentProgress delivered;
+	private long deliveredTime;
+
+	private boolean pending;
+	private long pendingProgress;
+	private long pendingProgressMax;
+
+	/**
+	 * @param downstream The observer to deliver the progress to
+	 * @param intervalMillis The time between deliveries of progress within a phase
+	 * @param percentStep The percentage the progress has to advance by to be delivered before {@param intervalMillis}
+	 */
+	public ProgressCoalescer(@NonNull Observer<UpdateContentProgress> downstream, long intervalMillis, float percentStep)
+	{
+		this.downstream = downstream;
+		this.intervalMillis = intervalMillis;
+		this.percentStep = percentStep;
+	}
+
+	/**
+	 * Offers progress of the update, which is delivered if it is due
+	 */
+	public synchronized void onProgress(@NonNull Phase phase, long progress, long progressMax)
+	{
+		offer(phase, progress, progressMax, null);
+	}
+
+	@Override public synchronized void onNext(@NonNull UpdateContentProgress progress)
+	{
+		offer(progress.getPhase(), progress.getProgress(), progress.getProgressMax(), progress);
+	}
+
+	@Override public void onSubscribe(@NonNull Disposable disposable)
+	{
+		downstream.onSubscribe(disposable);
+	}
+
+	@Override public void onError(@NonNull Throwable error)
+	{
+		synchronized (this)
+		{
+			flush();
+		}
+
+		downstream.onError(error);
+	}
+
+	@Override public void onComplete()
+	{
+		synchronized (this)
+		{
+			flush();
+		}
+
+		downstream.onComplete();
+	}
+
+	/**
+	 * Called after progress has been delivered to the downstream observer
+	 *
+	 * @param progress The progress delivered
+	 */
+	protected void onDelivered(@NonNull UpdateContentProgress progress){}
+
+	private void offer(Phase phase, long progress, long progressMax, @Nullable UpdateContentProgress value)
+	{
+		if (delivered == null || delivered.getPhase() != phase)
+		{
+			flush();
+			deliver(phase, progress, progressMax, value);
+			return;
+		}
+
+		boolean complete = progressMax > 0 && progress >= progressMax;
+		boolean stepped = progressMax > 0 && (progress - delivered.getProgress()) * 100f / progressMax >= percentStep;
+
+		if (complete || stepped || SystemClock.elapsedRealtime() - deliveredTime >= intervalMillis)
+		{
+			deliver(phase, progress, progressMax, value);
+		}
+		else
+		{
+			pending = true;
+			pendingProgress = progress;
+			pendingProgressMax = progressMax;
+		}
+	}
+
+	/**
+	 * Delivers the latest progress which was held back, if any
+	 */
+	private void flush()
+	{
+		if (pending && delivered != null)
+		{
+			deliver(delivered.getPhase(), pendingProgress, pendingProgressMax, null);
+		}
+	}
+
+	private void deliver(Phase phase, long progress, long progressMax, @Nullable UpdateContentProgress value)
+	{
+		pending = false;
+
+		if (delivered != null && delivered.getPhase() == phase && delivered.getProgress() == progress && delivered.getProgressMax() == progressMax)
+		{
+			return;
+		}
+
+		delivered = value != null ? value : new UpdateContentProgress(phase, progress, progressMax);
+		deliveredTime = SystemClock.elapsedRealtime();
+		downstream.onNext(delivered);
+		onDelivered(delivered);
+	}
+}
@@ -0,0 +1,142 @@
+package com.cube.storm.content.lib.helper;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+
+import com.cube.storm.content.lib.worker.ContentUpdateWorker;
+import com.cube.storm.content.model.UpdateContentMetrics;
+import com.cube.storm.content.model.UpdateContentProgress;
+import com.cube.storm.content.model.UpdateContentProgress.Phase;
+
+import java.util.Collections;
+import java.util.EnumMap;
+
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.subjects.SingleSubject;
+
+/**
+ * Records the {@link UpdateContentMetrics} of a single {@link com.cube.storm.content.model.UpdateContentRequest}
+ * <p/>
+ * Phase times and the number of files verified are recorded from the progress of the request. Figures the progress does
+ * not carry, such as the bytes downloaded and extracted, are added by the update manager as the request runs. The
+ * metrics are emitted by {@link #getMetrics()} when the progress completes or fails.
+ */
+public class UpdateMetricsRecorder
+{
+	private final String requestId;
+	private final ContentUpdateWorker.UpdateType updateType;
+	private final long startTime = SystemClock.elapsedRealtime();
+	private final EnumMap<Phase, Long> phaseTimes = new EnumMap<>(Phase.class);
+	private final SingleSubject<UpdateContentMetrics> metrics = SingleSubject.create();
+
+	private Phase phase;
+	private long phaseStartTime;
+	private long bytesDownloaded;
+	private long bytesExtracted;
+	private long filesHashed;
+	private long bytesDeployed;
+	private int retryCount;
+	private boolean finished;
+
+	/**
+	 * @param requestId The ID of the request
+	 * @param updateType The type of the request
+	 * @param progress The progress of the request, which is subscribed to immediately
+	 */
+	public UpdateMetricsRecorder(@NonNull String requestId, @NonNull ContentUpdateWorker.UpdateType updateType, @NonNull Observable<UpdateContentProgress> progress)
+	{
+		this.requestId = requestId;
+		this.updateType = updateType;
+
+		progress.subscribe(this::onProgress, error -> finish(false), () -> finish(true));
+	}
+
+	/**
+	 * @return The metrics of the request, emitted once it has completed or failed
+	 */
+	@NonNull
+	public Single<UpdateContentMetrics> getMetrics()
+	{
+		return metrics.hide();
+	}
+
+	public synchronized void addBytesDownloaded(long bytes)
+	{
+		bytesDownloaded += bytes;
+	}
+
+	public synchronized void addBytesExtracted(long bytes)
+	{
+		bytesExtracted += bytes;
+	}
+
+	public synchronized void addBytesDeployed(long bytes)
+	{
+		bytesDeployed += bytes;
+	}
+
+	public synchronized void setRetryCount(int retryCount)
+	{
+		this.retryCount = retryCount;
+	}
+
+	private synchronized void onProgress(UpdateContentProgress progress)
+	{
+		if (progress.getPhase() != phase)
+		{
+			long now = SystemClock.elapsedRealtime();
+			endPhase(now);
+
+			phase = progress.getPhase();
+			phaseStartTime = now;
+		}
+
+		if (progress.getPhase() == Phase.VERIFYING)
+		{
+			filesHashed = progress.getProgress();
+		}
+	}
+
+	private void finish(boolean successful)
+	{
+		UpdateContentMetrics result;
+
+		synchronized (this)
+		{
+			if (finished)
+			{
+				return;
+			}
+
+			finished = true;
+			long now = SystemClock.elapsedRealtime();
+			endPhase(now);
+
+			result = new UpdateContentMetrics(
+				requestId,
+				updateType,
+				successful,
+				now - startTime,
+				Collections.unmodifiableMap(new EnumMap<>(phaseTimes)),
+				bytesDownloaded,
+				bytesExtracted,
+				filesHashed,
+				bytesDeployed,
+				retryCount
+			);
+		}
+
+		metrics.onSuccess(result);
+	}
+
+	private void endPhase(long now)
+	{
+		if (phase != null)
+		{
+			Long time = phaseTimes.get(phase);
+			phaseTimes.put(phase, (time == null ? 0 : time) + now - phaseStartTime);
+			phase = null;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.cube.storm.content.lib.listener;
+
+import androidx.annotation.NonNull;
+
+import com.cube.storm.content.model.UpdateContentMetrics;
+
+/**
+ * Listener interface for the metrics of each content update.
+ * <p/>
+ * Use this interface to report how long updates take in the field, for example to an analytics service
+ */
+public interface UpdateMetricsListener
+{
+	/**
+	 * Method called once an update has completed or failed
+	 *
+	 * @param metrics The timings and throughput of the update
+	 */
+	public void onUpdateMetrics(@NonNull UpdateContentMetrics metrics);
+}
@@ -8,8 +8,11 @@ import com.cube.storm.content.lib.Environment;
 
 import net.callumtaylor.asynchttp.AsyncHttpClient;
 import net.callumtaylor.asynchttp.response.JsonResponseHandler;
+import net.callumtaylor.asynchttp.response.ResponseHandler;
 
+import okhttp3.Call;
 import okhttp3.Headers;
+import okhttp3.HttpUrl;
 
 /**
  * This is the manager class responsible for checking for and downloading updates from the server
@@ -18,6 +21,11 @@ import okhttp3.Headers;
  * <p/>
  * You should not need to use this class directly for checking for updates, instead, use the {@link com.cube.storm.ContentSettings#getUpdateManager()} class.
  * <p/>
+ * Every request, other than the deprecated {@link AsyncHttpClient} checks, is made with the shared
+ * {@link com.cube.storm.ContentSettings#getHttpClient()}, and the returned {@link Call} can be used to cancel it.
+ * Update checks are conditional on the validators stored in
+ * {@link com.cube.storm.ContentSettings#getUpdateCheckValidators()}, so the server can answer {@code 304 Not Modified}.
+ * <p/>
  * Example code for checking for deltas.
  * <pre>
  Manifest manifest = ContentSettings.getInstance().getBundleBuilder().buildManifest(Uri.parse("cache://manifest.json"));
@@ -44,38 +52,16 @@ public abstract class APIManager
 	 *
 	 * @param lastUpdate The time of the last update. Usually found in the {@code manifest.json} file
 	 * @param response The response to use for downloading the delta
+	 *
+	 * @deprecated The check is made with its own {@link AsyncHttpClient} and is not conditional. Use
+	 * {@link #requestDelta(long, JsonResponseHandler)}, which is what {@link DefaultUpdateManager} calls.
 	 */
+	@Deprecated
 	public AsyncHttpClient checkForDelta(long lastUpdate, JsonResponseHandler response)
 	{
-		String appId = "";
-
-		try
-		{
-			appId = ContentSettings.getInstance().getAppId().split("-")[2];
-		}
-		catch (Exception e)
-		{
-			e.printStackTrace();
-			throw new Error("App ID set in ContentSettings#appId is an incorrect format");
-		}
-
-		String urlPart = String.format(Constants.API_CONTENT_UPDATE, appId, lastUpdate, ContentSettings.getInstance().getContentEnvironment().getEnvironmentLabel());
-
-		Headers.Builder builder = new Headers.Builder();
-
-		if (ContentSettings.getInstance().getContentEnvironment() == Environment.TEST)
-		{
-			if (TextUtils.isEmpty(ContentSettings.getInstance().getAuthorizationToken()))
-			{
-				throw new Error("Authorization token is empty, you must set this in ContentSettings$Builder.authorizationToken(String)");
-			}
-
-			builder.add("Authorization", "" + ContentSettings.getInstance().getAuthorizationToken());
-		}
-
 		AsyncHttpClient client = new AsyncHttpClient(ContentSettings.getInstance().getContentBaseUrl());
 		client.setAllowRedirect(false);
-		client.get(ContentSettings.getInstance().getContentVersion() + "/" + urlPart, null, builder.build(), response);
+		client.get(ContentSettings.getInstance().getContentVersion() + "/" + getDeltaUrlPart(lastUpdate), null, getAuthorizationHeaders(), response);
 
 		return client;
 	}
@@ -87,7 +73,10 @@ public abstract class APIManager
 	 * bundle
 	 *
 	 * @param response The response to use for downloading the bundle
+	 *
+	 * @deprecated Use {@link #requestBundle(long, JsonResponseHandler)}
 	 */
+	@Deprecated
 	public AsyncHttpClient checkForBundle(JsonResponseHandler response)
 	{
 		return checkForBundle(-1, response);
@@ -101,29 +90,156 @@ public abstract class APIManager
 	 *
 	 * @param lastUpdate The time of the last update. Usually found in the {@code manifest.json} file
 	 * @param response The response to use for downloading the bundle
+	 *
+	 * @deprecated The check is made with its own {@link AsyncHttpClient} and is not conditional. Use
+	 * {@link #requestBundle(long, JsonResponseHandler)}, which is what {@link DefaultUpdateManager} calls.
 	 */
+	@Deprecated
 	public AsyncHttpClient checkForBundle(long lastUpdate, JsonResponseHandler response)
 	{
-		String appId = "";
+		AsyncHttpClient client = new AsyncHttpClient(ContentSettings.getInstance().getContentBaseUrl());
+		client.setAllowRedirect(false);
+		client.get(ContentSettings.getInstance().getContentVersion() + "/" + getBundleUrlPart(lastUpdate), null, getAuthorizationHeaders(), response);
 
-		try
-		{
-			appId = ContentSettings.getInstance().getAppId().split("-")[2];
-		}
-		catch (Exception e)
+		return client;
+	}
+
+	/**
+	 * Checks the API for any delta updates with the shared {@link com.cube.storm.ContentSettings#getHttpClient()}
+	 * <p/>
+	 * Uses the URLs defined in {@link com.cube.storm.ContentSettings#contentBaseUrl} and {@link com.cube.storm.ContentSettings#contentVersion} to check for
+	 * updates since {@param lastUpdate}
+	 *
+	 * @param lastUpdate The time of the last update. Usually found in the {@code manifest.json} file
+	 * @param response The response to use for downloading the delta
+	 *
+	 * @return The call of the check, which can be used to cancel it
+	 */
+	public Call requestDelta(long lastUpdate, JsonResponseHandler response)
+	{
+		String url = getUrl(getDeltaUrlPart(lastUpdate));
+		Headers.Builder builder = getAuthorizationHeaders().newBuilder();
+		addConditionalHeaders(url, builder);
+
+		return ContentSettings.getInstance().getHttpClient().getWithoutRedirects(url, builder.build(), response);
+	}
+
+	/**
+	 * Downloads a full bundle from the server with the shared {@link com.cube.storm.ContentSettings#getHttpClient()}
+	 * <p/>
+	 * Uses the URLs defined in {@link com.cube.storm.ContentSettings#contentBaseUrl} and {@link com.cube.storm.ContentSettings#contentVersion} to download a full
+	 * bundle since {@param lastUpdate}
+	 *
+	 * @param lastUpdate The time of the last update, or -1 to download the latest bundle
+	 * @param response The response to use for downloading the bundle
+	 *
+	 * @return The call of the check, which can be used to cancel it
+	 */
+	public Call requestBundle(long lastUpdate, JsonResponseHandler response)
+	{
+		String url = getUrl(getBundleUrlPart(lastUpdate));
+		Headers.Builder builder = getAuthorizationHeaders().newBuilder();
+		addConditionalHeaders(url, builder);
+
+		return ContentSettings.getInstance().getHttpClient().getWithoutRedirects(url, builder.build(), response);
+	}
+
+	/**
+	 * Downloads the manifest of the latest content from the server, without downloading the content itself
+	 * <p/>
+	 * Uses the URLs defined in {@link com.cube.storm.ContentSettings#contentBaseUrl} and {@link com.cube.storm.ContentSettings#contentVersion}
+	 *
+	 * @param response The response to use for downloading the manifest
+	 */
+	public Call checkForManifest(JsonResponseHandler response)
+	{
+		String urlPart = String.format(Constants.API_MANIFEST, getAppIdPart(), ContentSettings.getInstance().getContentEnvironment().getEnvironmentLabel());
+
+		String url = getUrl(urlPart);
+		Headers.Builder builder = getAuthorizationHeaders().newBuilder();
+		addConditionalHeaders(url, builder);
+
+		return ContentSettings.getInstance().getHttpClient().get(url, builder.build(), response);
+	}
+
+	/**
+	 * Downloads a single file of the latest content from the server
+	 * <p/>
+	 * Uses the URLs defined in {@link com.cube.storm.ContentSettings#contentBaseUrl} and {@link com.cube.storm.ContentSettings#contentVersion}
+	 *
+	 * @param path The path of the file relative to the bundle directory, for example {@code pages/1.json}
+	 * @param response The response to use for downloading the file
+	 */
+	public Call downloadFile(String path, ResponseHandler<?> response)
+	{
+		String urlPart = String.format(Constants.API_FILE, getAppIdPart());
+
+		// the path is encoded segment by segment, as file names can contain characters such as spaces or '#'
+		HttpUrl url = HttpUrl.get(getUrl(urlPart)).newBuilder()
+			.addPathSegments(path)
+			.addQueryParameter("environment", ContentSettings.getInstance().getContentEnvironment().getEnvironmentLabel())
+			.build();
+
+		return ContentSettings.getInstance().getHttpClient().get(url.toString(), getAuthorizationHeaders(), response);
+	}
+
+	/**
+	 * @param urlPart The path of the endpoint, relative to the content version
+	 *
+	 * @return The absolute url of the endpoint
+	 */
+	protected String getUrl(String urlPart)
+	{
+		return ContentSettings.getInstance().getContentBaseUrl() + ContentSettings.getInstance().getContentVersion() + "/" + urlPart;
+	}
+
+	/**
+	 * Makes an update check conditional on the content having changed since the last check which found no update
+	 *
+	 * @param url The url of the check
+	 * @param builder The headers of the check
+	 */
+	protected void addConditionalHeaders(String url, Headers.Builder builder)
+	{
+		if (ContentSettings.getInstance().getUpdateCheckValidators() != null)
 		{
-			e.printStackTrace();
-			throw new Error("App ID set in ContentSettings$appId is an incorrect format");
+			ContentSettings.getInstance().getUpdateCheckValidators().addConditionalHeaders(url, builder);
 		}
+	}
+
+	private String getDeltaUrlPart(long lastUpdate)
+	{
+		return String.format(Constants.API_CONTENT_UPDATE, getAppIdPart(), lastUpdate, ContentSettings.getInstance().getContentEnvironment().getEnvironmentLabel());
+	}
 
+	private String getBundleUrlPart(long lastUpdate)
+	{
 		String endpoint = lastUpdate > -1 ? Constants.API_LANDMARK_BUNDLE : Constants.API_BUNDLE;
-		String urlPart = String.format(endpoint, appId, ContentSettings.getInstance().getContentEnvironment().getEnvironmentLabel());
+		String urlPart = String.format(endpoint, getAppIdPart(), ContentSettings.getInstance().getContentEnvironment().getEnvironmentLabel());
 
 		if (lastUpdate > -1)
 		{
 			urlPart += "&timestamp=" + lastUpdate;
 		}
 
+		return urlPart;
+	}
+
+	private String getAppIdPart()
+	{
+		try
+		{
+			return ContentSettings.getInstance().getAppId().split("-")[2];
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			throw new Error("App ID set in ContentSettings#appId is an incorrect format");
+		}
+	}
+
+	private Headers getAuthorizationHeaders()
+	{
 		Headers.Builder builder = new Headers.Builder();
 
 		if (ContentSettings.getInstance().getContentEnvironment() == Environment.TEST)
@@ -136,10 +252,6 @@ public abstract class APIManager
 			builder.add("Authorization", "" + ContentSettings.getInstance().getAuthorizationToken());
 		}
 
-		AsyncHttpClient client = new AsyncHttpClient(ContentSettings.getInstance().getContentBaseUrl());
-		client.setAllowRedirect(false);
-		client.get(ContentSettings.getInstance().getContentVersion() + "/" + urlPart, null, builder.build(), response);
-
-		return client;
+		return builder.build();
 	}
 }
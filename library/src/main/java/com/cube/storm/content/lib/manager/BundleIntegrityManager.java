@@ -1,6 +1,9 @@
 package com.cube.storm.content.lib.manager;
 
+import androidx.annotation.Nullable;
+
 import java.io.File;
+import java.util.Map;
 
 /**
  * Interface for ensuring that the integrity of any new bundle is verified before deployment and enforced after deployment
@@ -16,6 +19,35 @@ public interface BundleIntegrityManager
 	 * @return true if the bundle has the correct integrity, false if it was deleted
 	 */
 	boolean integrityCheck(String contentPath);
+
+	/**
+	 * Checks the integrity of each file currently stored in the given directory, reporting the number of files verified
+	 * as it goes. Implementations that do not report progress can rely on the default, which delegates to
+	 * {@link #integrityCheck(String)}
+	 *
+	 * @param contentPath the path to the bundle directory
+	 * @param listener the listener to report verified files to, or null
+	 * @return true if the bundle has the correct integrity, false if it was deleted
+	 */
+	default boolean integrityCheck(String contentPath, @Nullable VerificationListener listener)
+	{
+		return integrityCheck(contentPath);
+	}
+
+	/**
+	 * Checks the integrity of each file currently stored in the given directory, given the digests that were computed
+	 * whilst the bundle was extracted. Implementations that do not use the digests can rely on the default, which delegates
+	 * to {@link #integrityCheck(String, VerificationListener)}
+	 *
+	 * @param contentPath the path to the bundle directory
+	 * @param extractedDigests the hex digest of every extracted file keyed by its path relative to {@code contentPath}, or null if not known
+	 * @param listener the listener to report verified files to, or null
+	 * @return true if the bundle has the correct integrity, false if it was deleted
+	 */
+	default boolean integrityCheck(String contentPath, @Nullable Map<String, String> extractedDigests, @Nullable VerificationListener listener)
+	{
+		return integrityCheck(contentPath, listener);
+	}
 	
 	/**
 	 * Makes any final changes to the cached directory after deploying the bundle to enforce the integrity of the content
@@ -23,4 +55,18 @@ public interface BundleIntegrityManager
 	 * @param cachePath the path to the directory that the bundle has been deployed into
 	 */
 	void enforceIntegrityAfterDeployment(File cachePath);
+
+	/**
+	 * Listener for the progress of {@link #integrityCheck(String, VerificationListener)}
+	 */
+	interface VerificationListener
+	{
+		/**
+		 * Called as files are verified. Calls are never made concurrently.
+		 *
+		 * @param verified the number of files verified so far
+		 * @param total the total number of files to verify
+		 */
+		void onFilesVerified(long verified, long total);
+	}
 }
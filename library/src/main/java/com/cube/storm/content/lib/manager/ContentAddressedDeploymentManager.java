@@ -0,0 +1,171 @@
+package com.cube.storm.content.lib.manager;
+
+import androidx.annotation.NonNull;
+
+import com.cube.storm.ContentSettings;
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.helper.FileHelper;
+import com.cube.storm.content.lib.helper.ManifestCache;
+import com.cube.storm.content.lib.helper.ManifestIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import timber.log.Timber;
+
+/**
+ * {@link VersionedDeploymentManager} which stores the files of the {@code pages}, {@code content}, {@code languages} and
+ * {@code data} folders once per hash in {@code <storagePath>/blobs/}, rather than by name in each version directory.
+ * <p/>
+ * A version directory only contains the manifest, its {@link ManifestIndex} and {@code app.json}. The index maps each
+ * file name to its hash, and {@link #getContentFile(String)} maps it to the blob, so a file that is stored under
+ * several names, or is unchanged between bundles, is only stored once. Deploying a file whose hash is already stored
+ * does nothing.
+ * <p/>
+ * Files of the active version that were deployed by name, by {@link LegacyDeploymentManager} or
+ * {@link VersionedDeploymentManager}, are moved into the store by the first deployment.
+ */
+public class ContentAddressedDeploymentManager extends VersionedDeploymentManager
+{
+	public static final String FOLDER_BLOBS = "blobs";
+
+	private static final String[] ROOT_ENTRIES = {
+		Constants.FILE_ENTRY_POINT,
+		Constants.FILE_MANIFEST
+	};
+
+	@NonNull @Override public File getContentFile(@NonNull String relativePath)
+	{
+		ManifestIndex index = ManifestCache.getInstance().getActiveIndex();
+
+		if (index != null)
+		{
+			String hash = index.getHash(relativePath);
+
+			if (hash != null)
+			{
+				return new File(getBlobsPath(), hash);
+			}
+		}
+
+		return super.getContentFile(relativePath);
+	}
+
+	@Override protected void populate(@NonNull File bundlePath, @NonNull File staged, @NonNull File active) throws IOException
+	{
+		ManifestIndex index = ManifestIndex.load(bundlePath);
+
+		if (index == null && ManifestIndex.build(bundlePath))
+		{
+			index = ManifestIndex.load(bundlePath);
+		}
+
+		if (index == null)
+		{
+			throw new IOException("Bundle " + bundlePath + " has no manifest");
+		}
+
+		File blobs = getBlobsPath();
+		blobs.mkdirs();
+
+		int stored = 0;
+		int existing = 0;
+
+		for (int position = 0; position < index.size(); position++)
+		{
+			File blob = new File(blobs, index.getHash(position));
+
+			if (blob.exists())
+			{
+				existing++;
+				continue;
+			}
+
+			String path = index.getPath(position);
+			File file = new File(bundlePath, path);
+
+			if (file.exists())
+			{
+				FileHelper.moveFile(file, blob);
+				stored++;
+			}
+			else if ((file = new File(active, path)).exists())
+			{
+				// unchanged file that was deployed by name before the store was used
+				FileHelper.linkFile(file, blob);
+				stored++;
+			}
+		}
+
+		for (String entry : ROOT_ENTRIES)
+		{
+			File file = new File(bundlePath, entry);
+
+			if (file.exists())
+			{
+				FileHelper.moveFile(file, new File(staged, entry));
+			}
+			else if (new File(active, entry).exists())
+			{
+				FileHelper.linkFile(new File(active, entry), new File(staged, entry));
+			}
+		}
+
+		Timber.tag("storm_diagnostics").i(String.format("Staged %d files, %d new and %d already stored", index.size(), stored, existing));
+	}
+
+	@Override public void buildIndex(@NonNull File stagedPath)
+	{
+		ManifestIndex.build(stagedPath, getBlobsPath());
+	}
+
+	@Override public synchronized void activate(@NonNull File stagedPath) throws IOException
+	{
+		super.activate(stagedPath);
+
+		// the previous index may still map names to blobs that are about to be deleted
+		ManifestCache.getInstance().invalidate();
+		deleteUnreferencedBlobs(stagedPath);
+	}
+
+	@Override public synchronized void clear()
+	{
+		super.clear();
+		FileHelper.deleteRecursive(getBlobsPath());
+	}
+
+	private File getBlobsPath()
+	{
+		return new File(ContentSettings.getInstance().getStoragePath(), FOLDER_BLOBS);
+	}
+
+	/**
+	 * Deletes every blob that is not listed in the index of {@param contentPath}
+	 */
+	private void deleteUnreferencedBlobs(File contentPath)
+	{
+		ManifestIndex index = ManifestIndex.load(contentPath);
+		String[] blobs = getBlobsPath().list();
+
+		if (index == null || blobs == null)
+		{
+			return;
+		}
+
+		Set<String> referenced = new HashSet<>(index.size() * 2);
+		for (int position = 0; position < index.size(); position++)
+		{
+			referenced.add(index.getHash(position));
+		}
+
+		for (String blob : blobs)
+		{
+			if (!referenced.contains(blob))
+			{
+				new File(getBlobsPath(), blob).delete();
+			}
+		}
+	}
+}
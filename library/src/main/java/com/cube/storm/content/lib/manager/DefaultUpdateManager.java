@@ -1,13 +1,28 @@
 package com.cube.storm.content.lib.manager;
 
+import android.net.Uri;
 import android.text.TextUtils;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.cube.storm.ContentSettings;
 import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.handler.DownloadJournal;
 import com.cube.storm.content.lib.handler.GZIPTarCacheResponseHandler;
+import com.cube.storm.content.lib.handler.IncompleteDownloadException;
+import com.cube.storm.content.lib.handler.ResumableGZIPTarResponseHandler;
+import com.cube.storm.content.lib.handler.StreamingGZIPTarResponseHandler;
 import com.cube.storm.content.lib.helper.BundleHelper;
 import com.cube.storm.content.lib.helper.FileHelper;
+import com.cube.storm.content.lib.helper.ManifestCache;
+import com.cube.storm.content.lib.helper.ManifestDiff;
+import com.cube.storm.content.lib.helper.ManifestIndex;
+import com.cube.storm.content.lib.helper.ProgressCoalescer;
+import com.cube.storm.content.lib.helper.UpdateMetricsRecorder;
+import com.cube.storm.content.lib.network.ContentHttpClient;
+import com.cube.storm.content.lib.network.SegmentedBundleDownload;
+import com.cube.storm.content.lib.network.UpdateCheckValidators;
+import com.cube.storm.content.lib.worker.ContentUpdateWorker;
+import com.cube.storm.content.model.Manifest;
 import com.cube.storm.content.model.UpdateContentProgress;
 import com.cube.storm.content.model.UpdateContentRequest;
 import com.google.gson.JsonArray;
@@ -17,12 +32,18 @@ import io.reactivex.Observable;
 import io.reactivex.Observer;
 import io.reactivex.subjects.BehaviorSubject;
 import io.reactivex.subjects.Subject;
-import net.callumtaylor.asynchttp.AsyncHttpClient;
+import net.callumtaylor.asynchttp.obj.ConnectionInfo;
+import net.callumtaylor.asynchttp.response.CacheResponseHandler;
 import net.callumtaylor.asynchttp.response.JsonResponseHandler;
+import timber.log.Timber;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -35,7 +56,11 @@ import java.util.Map;
  */
 public class DefaultUpdateManager implements UpdateManager
 {
-	private AsyncHttpClient apiClient;
+	/**
+	 * Number of steps reported by {@link UpdateContentProgress#deploying(long, long)}: staging the bundle, building its
+	 * index, enforcing its integrity and activating it
+	 */
+	private static final int DEPLOY_STEPS = 4;
 
 	private Subject<UpdateContentRequest> updates = BehaviorSubject.create();
 
@@ -47,21 +72,26 @@ public class DefaultUpdateManager implements UpdateManager
 	{
 		Subject<UpdateContentProgress> observer = BehaviorSubject.create();
 		UpdateContentRequest updateContentRequest = UpdateContentRequest.fullBundle(buildTimestamp, observer);
+		reportMetrics(updateContentRequest);
 		updates.onNext(updateContentRequest);
-		checkForBundle(buildTimestamp, observer);
+		checkForBundle(buildTimestamp, coalesce(observer), updateContentRequest.getMetricsRecorder());
 		return updateContentRequest;
 	}
 
-	private void checkForBundle(@Nullable Long buildTime, Observer<UpdateContentProgress> observer)
+	private void checkForBundle(@Nullable Long buildTime, ProgressCoalescer observer, UpdateMetricsRecorder metrics)
 	{
 		observer.onNext(UpdateContentProgress.checking());
 
 		long buildTimeParam = buildTime == null ? -1 : buildTime;
-		apiClient = ContentSettings.getInstance().getApiManager().checkForBundle(buildTimeParam, new JsonResponseHandler()
+		ContentSettings.getInstance().getApiManager().requestBundle(buildTimeParam, new JsonResponseHandler()
 		{
 			@Override public void onSuccess()
 			{
-				apiClient = null;
+				if (getConnectionInfo().responseCode == HttpURLConnection.HTTP_NOT_MODIFIED)
+				{
+					onUpdateCheckNotModified(observer);
+					return;
+				}
 
 				boolean toDownload = false;
 
@@ -78,11 +108,16 @@ public class DefaultUpdateManager implements UpdateManager
 								if (response.getAsJsonObject().has("file"))
 								{
 									String endpoint = response.getAsJsonObject().get("file").getAsString();
-									downloadUpdates(endpoint, observer);
+									downloadUpdates(endpoint, observer, metrics);
 									toDownload = true;
 								}
 							}
 						}
+
+						if (!toDownload)
+						{
+							saveUpdateCheckValidators(getConnectionInfo());
+						}
 					}
 					catch (Exception e)
 					{
@@ -94,11 +129,13 @@ public class DefaultUpdateManager implements UpdateManager
 					if (!TextUtils.isEmpty(getConnectionInfo().responseHeaders.get("Location")))
 					{
 						String location = getConnectionInfo().responseHeaders.get("Location");
-						downloadUpdates(location, observer);
+						downloadUpdates(location, observer, metrics);
 						toDownload = true;
 					}
 				}
 
+				countUpdateCheck(false);
+
 				if (!toDownload)
 				{
 					observer.onComplete();
@@ -132,19 +169,24 @@ public class DefaultUpdateManager implements UpdateManager
 	{
 		Subject<UpdateContentProgress> observer = BehaviorSubject.create();
 		UpdateContentRequest updateContentRequest = UpdateContentRequest.deltaUpdate(lastUpdate, observer);
+		reportMetrics(updateContentRequest);
 		updates.onNext(updateContentRequest);
-		checkForUpdates(lastUpdate, observer);
+		checkForUpdates(lastUpdate, coalesce(observer), updateContentRequest.getMetricsRecorder());
 		return updateContentRequest;
 	}
 
-	private void checkForUpdates(long lastUpdate, Observer<UpdateContentProgress> observer)
+	private void checkForUpdates(long lastUpdate, ProgressCoalescer observer, UpdateMetricsRecorder metrics)
 	{
 		observer.onNext(UpdateContentProgress.checking());
-		apiClient = ContentSettings.getInstance().getApiManager().checkForDelta(lastUpdate, new JsonResponseHandler()
+		ContentSettings.getInstance().getApiManager().requestDelta(lastUpdate, new JsonResponseHandler()
 		{
 			@Override public void onSuccess()
 			{
-				apiClient = null;
+				if (getConnectionInfo().responseCode == HttpURLConnection.HTTP_NOT_MODIFIED)
+				{
+					onUpdateCheckNotModified(observer);
+					return;
+				}
 
 				boolean toDownload = false;
 
@@ -161,11 +203,16 @@ public class DefaultUpdateManager implements UpdateManager
 								if (response.getAsJsonObject().has("file"))
 								{
 									String endpoint = response.getAsJsonObject().get("file").getAsString();
-									downloadUpdates(endpoint, observer);
+									downloadUpdates(endpoint, observer, metrics);
 									toDownload = true;
 								}
 							}
 						}
+
+						if (!toDownload)
+						{
+							saveUpdateCheckValidators(getConnectionInfo());
+						}
 					}
 					catch (Exception e)
 					{
@@ -177,11 +224,13 @@ public class DefaultUpdateManager implements UpdateManager
 					if (!TextUtils.isEmpty(getConnectionInfo().responseHeaders.get("Location")))
 					{
 						String location = getConnectionInfo().responseHeaders.get("Location");
-						downloadUpdates(location, observer);
+						downloadUpdates(location, observer, metrics);
 						toDownload = true;
 					}
 				}
 
+				countUpdateCheck(false);
+
 				if (!toDownload)
 				{
 					observer.onComplete();
@@ -204,6 +253,201 @@ public class DefaultUpdateManager implements UpdateManager
 		});
 	}
 
+	/**
+	 * Checks for updates by comparing the remote manifest with the local manifest, and downloads each file whose hash
+	 * has changed into a delta directory which is then deployed like a delta bundle
+	 * <p/>
+	 * Download progress is reported as the number of files downloaded, rather than the number of bytes
+	 */
+	@Override
+	public UpdateContentRequest checkForFileUpdates()
+	{
+		Subject<UpdateContentProgress> observer = BehaviorSubject.create();
+		UpdateContentRequest updateContentRequest = UpdateContentRequest.fileDiff(observer);
+		reportMetrics(updateContentRequest);
+		updates.onNext(updateContentRequest);
+		checkForFileUpdates(coalesce(observer), updateContentRequest.getMetricsRecorder());
+		return updateContentRequest;
+	}
+
+	private void checkForFileUpdates(ProgressCoalescer observer, UpdateMetricsRecorder metrics)
+	{
+		observer.onNext(UpdateContentProgress.checking());
+		ContentSettings.getInstance().getApiManager().checkForManifest(new JsonResponseHandler()
+		{
+			@Override public void onSuccess()
+			{
+				if (getConnectionInfo().responseCode == HttpURLConnection.HTTP_NOT_MODIFIED)
+				{
+					onUpdateCheckNotModified(observer);
+					return;
+				}
+
+				boolean toDownload = false;
+
+				try
+				{
+					JsonElement response = getContent();
+
+					if (getConnectionInfo().responseCode == 200 && response != null && response.isJsonObject())
+					{
+						Manifest remote = ContentSettings.getInstance().getBundleBuilder().buildManifest(response);
+						Manifest local = ManifestCache.getInstance().getManifest(Uri.parse("cache://" + Constants.FILE_MANIFEST));
+
+						if (remote != null && (local == null || remote.getTimestamp() != local.getTimestamp()))
+						{
+							ManifestDiff diff = ManifestDiff.compare(local, remote);
+							Timber.tag("storm_diagnostics").i(String.format("File update to %d: %d files changed, %d removed", remote.getTimestamp(), diff.getChangedFiles().size(), diff.getRemovedFiles().size()));
+
+							downloadFiles(response.toString(), diff, observer, metrics);
+							toDownload = true;
+						}
+						else if (remote != null)
+						{
+							saveUpdateCheckValidators(getConnectionInfo());
+						}
+					}
+				}
+				catch (Exception e)
+				{
+					e.printStackTrace();
+				}
+
+				countUpdateCheck(false);
+
+				if (!toDownload)
+				{
+					observer.onComplete();
+				}
+
+				if (ContentSettings.getInstance().getUpdateListener() != null)
+				{
+					ContentSettings.getInstance().getUpdateListener().onUpdateCheckFinished(toDownload);
+				}
+			}
+
+			@Override public void onFailure()
+			{
+				observer.onError(new IllegalStateException("Unexpected response when checking for manifest: " + getConnectionInfo().toString()));
+				if (ContentSettings.getInstance().getUpdateListener() != null)
+				{
+					ContentSettings.getInstance().getUpdateListener().onUpdateCheckFailed(getConnectionInfo());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Completes an update check which the server answered with {@code 304 Not Modified}, as nothing has changed since
+	 * the last check which found there was no update
+	 */
+	private void onUpdateCheckNotModified(ProgressCoalescer observer)
+	{
+		countUpdateCheck(true);
+		observer.onComplete();
+
+		if (ContentSettings.getInstance().getUpdateListener() != null)
+		{
+			ContentSettings.getInstance().getUpdateListener().onUpdateCheckFinished(false);
+		}
+	}
+
+	/**
+	 * Stores the validators of an update check which found there was no update, so the next check can be answered with
+	 * {@code 304 Not Modified}
+	 */
+	private void saveUpdateCheckValidators(ConnectionInfo connectionInfo)
+	{
+		if (ContentSettings.getInstance().getUpdateCheckValidators() != null)
+		{
+			ContentSettings.getInstance().getUpdateCheckValidators().save(connectionInfo.connectionUrl, connectionInfo.responseHeaders);
+		}
+	}
+
+	private void countUpdateCheck(boolean notModified)
+	{
+		UpdateCheckValidators validators = ContentSettings.getInstance().getUpdateCheckValidators();
+
+		if (validators != null)
+		{
+			validators.onCheckFinished(notModified);
+
+			if (notModified)
+			{
+				Timber.tag("storm_diagnostics").i(String.format("Update check not modified, %d of %d checks short-circuited", validators.getNotModifiedCount(), validators.getCheckCount()));
+			}
+		}
+	}
+
+	/**
+	 * Writes the remote manifest into a new delta directory and starts downloading the changed files into it
+	 */
+	private void downloadFiles(String manifest, ManifestDiff diff, ProgressCoalescer observer, UpdateMetricsRecorder metrics) throws IOException
+	{
+		File deltaDirectory = new File(ContentSettings.getInstance().getStoragePath() + "/delta");
+		FileHelper.deleteRecursive(deltaDirectory);
+		deltaDirectory.mkdir();
+
+		// the downloaded files are verified against the remote manifest before they are deployed
+		try (FileOutputStream out = new FileOutputStream(new File(deltaDirectory, Constants.FILE_MANIFEST)))
+		{
+			out.write(manifest.getBytes("UTF-8"));
+		}
+
+		List<String> files = new ArrayList<>(diff.getChangedFiles());
+		// the entry point is not listed in the manifest, so it is always downloaded
+		files.add(Constants.FILE_ENTRY_POINT);
+
+		observer.onNext(UpdateContentProgress.downloading(0, files.size()));
+		downloadFile(deltaDirectory, files, 0, 0, null, diff.getRemovedFiles(), observer, metrics);
+	}
+
+	/**
+	 * Downloads the file at {@param position} in {@param files} into {@param deltaDirectory}, followed by each remaining
+	 * file, and deploys the delta directory once every file has been downloaded
+	 *
+	 * @param bytesDownloaded The total size of the files before {@param position}
+	 * @param connectionInfo The request of the file before {@param position}, or null if no file has been downloaded
+	 */
+	private void downloadFile(File deltaDirectory, List<String> files, int position, long bytesDownloaded, @Nullable ConnectionInfo connectionInfo, List<String> removedFiles, ProgressCoalescer observer, UpdateMetricsRecorder metrics)
+	{
+		if (position == files.size())
+		{
+			if (ContentSettings.getInstance().getUpdateListener() != null)
+			{
+				ContentSettings.getInstance().getUpdateListener().onUpdateDownloaded();
+			}
+
+			onBundleExtracted(observer, metrics, deltaDirectory.getAbsolutePath(), bytesDownloaded, null, removedFiles, connectionInfo);
+			return;
+		}
+
+		String path = files.get(position);
+		File target = new File(deltaDirectory, path);
+		target.getParentFile().mkdirs();
+
+		ContentSettings.getInstance().getApiManager().downloadFile(path, new CacheResponseHandler(target.getAbsolutePath())
+		{
+			@Override public void onSuccess()
+			{
+				long length = target.length();
+				metrics.addBytesDownloaded(length);
+
+				onDownloadProgress(observer, position + 1, files.size());
+				downloadFile(deltaDirectory, files, position + 1, bytesDownloaded + length, getConnectionInfo(), removedFiles, observer, metrics);
+			}
+
+			@Override public void onFailure()
+			{
+				onDownloadFailed(observer, getConnectionInfo());
+			}
+
+			@Override public void generateContent()
+			{
+			}
+		});
+	}
+
 	/**
 	 * Downloads a tar.gz file from the given endpoint
 	 *
@@ -213,12 +457,19 @@ public class DefaultUpdateManager implements UpdateManager
 	{
 		Subject<UpdateContentProgress> observer = BehaviorSubject.create();
 		UpdateContentRequest updateContentRequest = UpdateContentRequest.directDownload(observer);
+		reportMetrics(updateContentRequest);
 		updates.onNext(updateContentRequest);
-		downloadUpdates(endpoint, observer);
+		downloadUpdates(endpoint, coalesce(observer), updateContentRequest.getMetricsRecorder());
 		return updateContentRequest;
 	}
 
 	public void downloadUpdates(String endpoint, Observer<UpdateContentProgress> observer)
+	{
+		// the metrics are not reported, as there is no request to report them for
+		downloadUpdates(endpoint, coalesce(observer), new UpdateMetricsRecorder(Long.toString(System.currentTimeMillis()), ContentUpdateWorker.UpdateType.DIRECT_DOWNLOAD, Observable.never()));
+	}
+
+	private void downloadUpdates(String endpoint, ProgressCoalescer observer, UpdateMetricsRecorder metrics)
 	{
 		observer.onNext(UpdateContentProgress.downloading(0, 0));
 
@@ -229,85 +480,316 @@ public class DefaultUpdateManager implements UpdateManager
 			FileHelper.deleteRecursive(deltaDirectory);
 			deltaDirectory.mkdir();
 
-			apiClient = new AsyncHttpClient(endpoint);
-			apiClient.get(new GZIPTarCacheResponseHandler(ContentSettings.getInstance().getStoragePath() + "/delta")
+			ContentHttpClient httpClient = ContentSettings.getInstance().getHttpClient();
+
+			if (ContentSettings.getInstance().isResumableDownloads())
 			{
-				@Override public void onByteChunkReceivedProcessed(long totalProcessed, long totalLength)
+				DownloadJournal journal = DownloadJournal.load(ContentSettings.getInstance().getStoragePath(), endpoint);
+				ResumableGZIPTarResponseHandler handler = new ResumableGZIPTarResponseHandler(deltaDirectory.getAbsolutePath(), journal)
 				{
-					super.onByteChunkReceivedProcessed(totalProcessed, totalLength);
-
-					observer.onNext(UpdateContentProgress.downloading(totalProcessed, totalLength));
-					if (ContentSettings.getInstance().getDownloadListener() != null)
+					@Override public void onByteChunkReceivedProcessed(long totalProcessed, long totalLength)
 					{
-						ContentSettings.getInstance().getDownloadListener().onDownloadProgress(totalProcessed, totalLength);
+						super.onByteChunkReceivedProcessed(totalProcessed, totalLength);
+						onDownloadProgress(observer, getBytesReceived(), getBytesTotal());
 					}
-				}
 
-				@Override public void onSuccess()
-				{
-					super.onSuccess();
-					try
+					@Override public void onSuccess()
 					{
-						observer.onNext(UpdateContentProgress.verifying());
+						super.onSuccess();
 
-						// delete the bundle
-						new File(getFilePath() + "/bundle.tar").delete();
-
-						File path = new File(ContentSettings.getInstance().getStoragePath());
-
-						// Check the integrity of the unpacked bundle
-						if (ContentSettings.getInstance().getBundleIntegrityManager().integrityCheck(getFilePath()))
+						if (!isExtracted())
 						{
-							observer.onNext(UpdateContentProgress.deploying());
-							// Move files from /delta to ../
-							FileHelper.copyDirectory(new File(getFilePath()), path);
-							FileHelper.deleteRecursive(new File(getFilePath()));
-							// Enforce the integrity of the deployed directory
-							ContentSettings.getInstance().getBundleIntegrityManager().enforceIntegrityAfterDeployment(path);
+							return;
 						}
-						observer.onComplete();
+
+						metrics.addBytesDownloaded(getBytesReceived() - getResumeOffset());
+						onBundleExtracted(observer, metrics, getFilePath(), getConnectionInfo().responseLength, getExtractedDigests(), null, getConnectionInfo());
 					}
-					catch (Exception e)
-					{
-						e.printStackTrace();
 
-						observer.onError(e);
-						if (ContentSettings.getInstance().getUpdateListener() != null)
+					@Override public void onFailure()
+					{
+						if (getJournal().canResume())
+						{
+							observer.onError(new IncompleteDownloadException("Bundle download interrupted after " + getBytesReceived() + " bytes"));
+							if (ContentSettings.getInstance().getUpdateListener() != null)
+							{
+								ContentSettings.getInstance().getUpdateListener().onUpdateFailed(0, getConnectionInfo());
+							}
+						}
+						else
 						{
-							ContentSettings.getInstance().getUpdateListener().onUpdateFailed(1, getConnectionInfo());
+							onDownloadFailed(observer, getConnectionInfo());
 						}
 					}
+
+					@Override public void onFinish()
+					{
+						super.onFinish();
+						onDownloadFinished(getConnectionInfo());
+					}
+				};
+
+				if (handler.getResumeOffset() > 0)
+				{
+					Timber.tag("storm_diagnostics").i("Resuming bundle download from byte " + handler.getResumeOffset());
 				}
 
-				@Override public void onFailure()
+				httpClient.download(endpoint, handler.getRequestHeaders(), handler);
+			}
+			else if (ContentSettings.getInstance().getMaxDownloadSegments() > 1)
+			{
+				new SegmentedBundleDownload(httpClient, endpoint, deltaDirectory.getAbsolutePath(), ContentSettings.getInstance().getMaxDownloadSegments())
 				{
-					observer.onError(new IllegalStateException("Failed to download bundle"));
-					if (ContentSettings.getInstance().getUpdateListener() != null)
+					@Override public void onProgress(long bytesReceived, long bytesTotal)
 					{
-						ContentSettings.getInstance().getUpdateListener().onUpdateFailed(1, getConnectionInfo());
+						onDownloadProgress(observer, bytesReceived, bytesTotal);
 					}
-				}
 
-				@Override public void onFinish()
+					@Override public void onSuccess()
+					{
+						metrics.addBytesDownloaded(getBytesReceived());
+						onBundleExtracted(observer, metrics, getFilePath(), getConnectionInfo().responseLength, getExtractedDigests(), null, getConnectionInfo());
+					}
+
+					@Override public void onFailure()
+					{
+						onDownloadFailed(observer, getConnectionInfo());
+					}
+
+					@Override public void onFinish()
+					{
+						onDownloadFinished(getConnectionInfo());
+					}
+				}.start();
+			}
+			else if (ContentSettings.getInstance().isStreamingExtraction())
+			{
+				httpClient.download(endpoint, null, new StreamingGZIPTarResponseHandler(deltaDirectory.getAbsolutePath())
 				{
-					apiClient = null;
+					private long bytesReceived;
 
-					if (getConnectionInfo().responseCode >= 200 && getConnectionInfo().responseCode < 300)
+					@Override public void onByteChunkReceivedProcessed(long totalProcessed, long totalLength)
 					{
-						if (ContentSettings.getInstance().getUpdateListener() != null)
+						super.onByteChunkReceivedProcessed(totalProcessed, totalLength);
+						bytesReceived = totalProcessed;
+						onDownloadProgress(observer, totalProcessed, totalLength);
+					}
+
+					@Override public void onSuccess()
+					{
+						super.onSuccess();
+
+						if (!isExtracted())
 						{
-							ContentSettings.getInstance().getUpdateListener().onUpdateDownloaded();
+							return;
 						}
+
+						metrics.addBytesDownloaded(bytesReceived);
+						onBundleExtracted(observer, metrics, getFilePath(), getConnectionInfo().responseLength, getExtractedDigests(), null, getConnectionInfo());
 					}
-					else
+
+					@Override public void onFailure()
 					{
-						if (ContentSettings.getInstance().getUpdateListener() != null)
+						onDownloadFailed(observer, getConnectionInfo());
+					}
+
+					@Override public void onFinish()
+					{
+						super.onFinish();
+						onDownloadFinished(getConnectionInfo());
+					}
+				});
+			}
+			else
+			{
+				httpClient.download(endpoint, null, new GZIPTarCacheResponseHandler(deltaDirectory.getAbsolutePath())
+				{
+					private long bytesReceived;
+
+					@Override public void onByteChunkReceivedProcessed(long totalProcessed, long totalLength)
+					{
+						super.onByteChunkReceivedProcessed(totalProcessed, totalLength);
+						bytesReceived = totalProcessed;
+						onDownloadProgress(observer, totalProcessed, totalLength);
+					}
+
+					@Override public void onSuccess()
+					{
+						super.onSuccess();
+
+						// delete the bundle
+						new File(getFilePath() + "/bundle.tar").delete();
+
+						if (!isExtracted())
 						{
-							ContentSettings.getInstance().getUpdateListener().onUpdateFailed(0, getConnectionInfo());
+							return;
 						}
+
+						metrics.addBytesDownloaded(bytesReceived);
+
+						onBundleExtracted(observer, metrics, getFilePath(), getConnectionInfo().responseLength, getExtractedDigests(), null, getConnectionInfo());
 					}
+
+					@Override public void onFailure()
+					{
+						onDownloadFailed(observer, getConnectionInfo());
+					}
+
+					@Override public void onFinish()
+					{
+						onDownloadFinished(getConnectionInfo());
+					}
+				});
+			}
+		}
+	}
+
+	private void onDownloadProgress(ProgressCoalescer observer, long totalProcessed, long totalLength)
+	{
+		observer.onProgress(UpdateContentProgress.Phase.DOWNLOADING, totalProcessed, totalLength);
+	}
+
+	/**
+	 * Coalesces the progress of a request using {@link ContentSettings#getProgressInterval()} and
+	 * {@link ContentSettings#getProgressStep()}, and passes the download progress which is delivered to
+	 * {@link ContentSettings#getDownloadListener()}
+	 */
+	private ProgressCoalescer coalesce(Observer<UpdateContentProgress> observer)
+	{
+		return new ProgressCoalescer(observer, ContentSettings.getInstance().getProgressInterval(), ContentSettings.getInstance().getProgressStep())
+		{
+			@Override protected void onDelivered(@NonNull UpdateContentProgress progress)
+			{
+				// the progress reported as a download starts is not a chunk
+				if (progress.getPhase() == UpdateContentProgress.Phase.DOWNLOADING && progress.getProgress() > 0 && ContentSettings.getInstance().getDownloadListener() != null)
+				{
+					ContentSettings.getInstance().getDownloadListener().onDownloadProgress(progress.getProgress(), progress.getProgressMax());
 				}
+			}
+		};
+	}
+
+	/**
+	 * Verifies the bundle extracted into {@param filePath} and deploys it into {@link ContentSettings#getStoragePath()}
+	 *
+	 * @param bundleBytes The total size of the files in {@param filePath}. The bundle handlers report the size of the
+	 * extracted files as the response length of {@param connectionInfo}
+	 * @param extractedDigests The digests computed whilst extracting the bundle, or null if the files were downloaded
+	 * individually
+	 * @param removedFiles Files to delete from the deployed content, relative to the bundle directory, or null if the
+	 * files to delete are only determined by the manifest
+	 * @param connectionInfo The bundle download, or the last file request if the files were downloaded individually
+	 */
+	private void onBundleExtracted(ProgressCoalescer observer, UpdateMetricsRecorder metrics, String filePath, long bundleBytes, @Nullable Map<String, String> extractedDigests, @Nullable List<String> removedFiles, @NonNull ConnectionInfo connectionInfo)
+	{
+		try
+		{
+			if (extractedDigests != null)
+			{
+				metrics.addBytesExtracted(bundleBytes);
+			}
+
+			observer.onNext(UpdateContentProgress.verifying());
+			ManifestIndex.build(new File(filePath));
+
+			// Check the integrity of the unpacked bundle
+			boolean verified = ContentSettings.getInstance().getBundleIntegrityManager().integrityCheck(filePath, extractedDigests, (filesVerified, filesTotal) -> {
+				observer.onProgress(UpdateContentProgress.Phase.VERIFYING, filesVerified, filesTotal);
 			});
+
+			if (verified)
+			{
+				observer.onNext(UpdateContentProgress.deploying(0, DEPLOY_STEPS));
+				DeploymentManager deploymentManager = ContentSettings.getInstance().getDeploymentManager();
+				// The index of the delta only marks its own files present, and staging it could overwrite the mapped index
+				// of the live content in place. The index of the staged content is built by buildIndex() instead.
+				new File(filePath, Constants.FILE_MANIFEST_INDEX).delete();
+				// Combine the files from /delta with the deployed content
+				File path = deploymentManager.stage(new File(filePath));
+				FileHelper.deleteRecursive(new File(filePath));
+				metrics.addBytesDeployed(bundleBytes);
+
+				if (removedFiles != null)
+				{
+					for (String removedFile : removedFiles)
+					{
+						new File(path, removedFile).delete();
+					}
+				}
+
+				observer.onNext(UpdateContentProgress.deploying(1, DEPLOY_STEPS));
+				deploymentManager.buildIndex(path);
+				observer.onNext(UpdateContentProgress.deploying(2, DEPLOY_STEPS));
+				// Any other partial downloads are now out of date
+				DownloadJournal.clear(ContentSettings.getInstance().getStoragePath());
+				// Enforce the integrity of the deployed directory
+				ContentSettings.getInstance().getBundleIntegrityManager().enforceIntegrityAfterDeployment(path);
+				observer.onNext(UpdateContentProgress.deploying(3, DEPLOY_STEPS));
+				deploymentManager.activate(path);
+				ManifestCache.getInstance().invalidate();
+
+				if (ContentSettings.getInstance().getParsedObjectCache() != null)
+				{
+					ContentSettings.getInstance().getParsedObjectCache().invalidateChangedFiles(ManifestCache.getInstance().getActiveIndex());
+				}
+
+				IdentifiersManager.getInstance().onContentDeployed();
+				observer.onNext(UpdateContentProgress.deploying(DEPLOY_STEPS, DEPLOY_STEPS));
+			}
+			observer.onComplete();
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+
+			observer.onError(e);
+			if (ContentSettings.getInstance().getUpdateListener() != null)
+			{
+				ContentSettings.getInstance().getUpdateListener().onUpdateFailed(1, connectionInfo);
+			}
+		}
+	}
+
+	/**
+	 * Logs the metrics of {@param request} once it has finished, and passes them to
+	 * {@link ContentSettings#getUpdateMetricsListener()}
+	 */
+	private void reportMetrics(UpdateContentRequest request)
+	{
+		request.getMetrics().subscribe(metrics -> {
+			Timber.tag("storm_diagnostics").i(String.format("Update %s %s in %dms: %d bytes downloaded, %d files verified at %.0f files/s", metrics.getRequestId(), metrics.isSuccessful() ? "completed" : "failed", metrics.getTotalTime(), metrics.getBytesDownloaded(), metrics.getFilesHashed(), metrics.getFilesHashedPerSecond()));
+
+			if (ContentSettings.getInstance().getUpdateMetricsListener() != null)
+			{
+				ContentSettings.getInstance().getUpdateMetricsListener().onUpdateMetrics(metrics);
+			}
+		});
+	}
+
+	private void onDownloadFailed(ProgressCoalescer observer, ConnectionInfo connectionInfo)
+	{
+		observer.onError(new IllegalStateException("Failed to download bundle"));
+		if (ContentSettings.getInstance().getUpdateListener() != null)
+		{
+			ContentSettings.getInstance().getUpdateListener().onUpdateFailed(1, connectionInfo);
+		}
+	}
+
+	private void onDownloadFinished(ConnectionInfo connectionInfo)
+	{
+		if (connectionInfo.responseCode >= 200 && connectionInfo.responseCode < 300)
+		{
+			if (ContentSettings.getInstance().getUpdateListener() != null)
+			{
+				ContentSettings.getInstance().getUpdateListener().onUpdateDownloaded();
+			}
+		}
+		else
+		{
+			if (ContentSettings.getInstance().getUpdateListener() != null)
+			{
+				ContentSettings.getInstance().getUpdateListener().onUpdateFailed(0, connectionInfo);
+			}
 		}
 	}
 
@@ -317,10 +799,7 @@ public class DefaultUpdateManager implements UpdateManager
 	@Override
 	public void cancelPendingRequests()
 	{
-		if (apiClient != null)
-		{
-			apiClient.cancel();
-		}
+		ContentSettings.getInstance().getHttpClient().cancelAll();
 	}
 
 	@Override
@@ -0,0 +1,78 @@
+package com.cube.storm.content.lib.manager;
+
+import androidx.annotation.NonNull;
+
+import com.cube.storm.content.lib.helper.ManifestIndex;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Interface for deploying a downloaded and verified bundle so that it becomes the content served by
+ * {@link com.cube.storm.content.lib.resolver.CacheResolver}
+ * <p/>
+ * Deployment happens in two steps. {@link #stage(File)} builds the new content directory, which is then checked by
+ * {@link BundleIntegrityManager#enforceIntegrityAfterDeployment(File)} before {@link #activate(File)} makes it live.
+ */
+public interface DeploymentManager
+{
+	/**
+	 * @return The directory that the currently deployed content is served from
+	 */
+	@NonNull
+	File getActiveContentPath();
+
+	/**
+	 * Gets the file of the deployed content for a path in the bundle
+	 *
+	 * @param relativePath The path of the file relative to the bundle directory, for example {@code pages/1.json}
+	 *
+	 * @return The file the content is stored in, which may not exist
+	 */
+	@NonNull
+	default File getContentFile(@NonNull String relativePath)
+	{
+		return new File(getActiveContentPath(), relativePath);
+	}
+
+	/**
+	 * Combines the extracted bundle with the currently deployed content into a new content directory
+	 *
+	 * @param bundlePath The directory the verified bundle or delta was extracted into
+	 *
+	 * @return The staged content directory
+	 */
+	@NonNull
+	File stage(@NonNull File bundlePath) throws IOException;
+
+	/**
+	 * Makes a staged content directory the active content
+	 *
+	 * @param stagedPath The directory returned by {@link #stage(File)}
+	 */
+	void activate(@NonNull File stagedPath) throws IOException;
+
+	/**
+	 * Builds the {@link ManifestIndex} of a staged content directory, once any files have been removed from it
+	 *
+	 * @param stagedPath The directory returned by {@link #stage(File)}
+	 */
+	default void buildIndex(@NonNull File stagedPath)
+	{
+		ManifestIndex.build(stagedPath);
+	}
+
+	/**
+	 * @return Whether deployed files are never rewritten in place, so they can be safely memory mapped whilst a new
+	 * bundle is deployed. Managers which copy bundles over the active content must return false
+	 */
+	default boolean hasImmutableFiles()
+	{
+		return false;
+	}
+
+	/**
+	 * Deletes all deployed content
+	 */
+	void clear();
+}
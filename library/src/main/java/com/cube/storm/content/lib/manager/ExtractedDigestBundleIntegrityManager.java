@@ -0,0 +1,75 @@
+package com.cube.storm.content.lib.manager;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.ContentSettings;
+import com.cube.storm.content.lib.handler.TarExtractor;
+import com.cube.storm.content.lib.helper.BundleHelper;
+import com.cube.storm.content.lib.helper.FileHelper;
+import com.cube.storm.util.lib.manager.FileManager;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link BundleIntegrityManager} which verifies a bundle against the digests computed by {@link TarExtractor} whilst
+ * the bundle was being extracted, so the extracted files do not have to be read back from disk to be hashed.
+ * <p/>
+ * Files listed in the manifest which have no extracted digest but exist in the bundle directory are hashed from disk,
+ * so a file left incomplete by a failed extraction is still caught. Files which do not exist are skipped, in the same
+ * way that {@link LegacyBundleIntegrityManager} skips them. If no digests are available, the whole bundle is hashed
+ * from disk by {@link ParallelBundleIntegrityManager}.
+ */
+public class ExtractedDigestBundleIntegrityManager extends ParallelBundleIntegrityManager
+{
+	@Override public boolean integrityCheck(String contentPath, @Nullable Map<String, String> extractedDigests, @Nullable VerificationListener listener)
+	{
+		if (extractedDigests == null)
+		{
+			return integrityCheck(contentPath, listener);
+		}
+
+		List<String[]> files = readManifestFiles(contentPath);
+		if (files == null)
+		{
+			return false;
+		}
+
+		boolean correct = true;
+		int total = files.size();
+		FileManager fileManager = ContentSettings.getInstance().getFileManager();
+
+		for (int index = 0; index < total; index++)
+		{
+			String[] file = files.get(index);
+			String actualHash = extractedDigests.get(file[0]);
+
+			if (actualHash == null && new File(contentPath, file[0]).exists())
+			{
+				actualHash = fileManager.getFileHash(contentPath + "/" + file[0]);
+			}
+
+			if (actualHash != null && !BundleHelper.hashesMatch(file[1], actualHash))
+			{
+				correct = false;
+				Log.w("LightningContent", String.format("File %s has the wrong hash! Expected %s but got %s", file[0], file[1], actualHash));
+				break;
+			}
+		}
+
+		if (listener != null && correct)
+		{
+			listener.onFilesVerified(total, total);
+		}
+
+		if (!correct)
+		{
+			FileHelper.deleteRecursive(new File(contentPath));
+			BundleHelper.clearUpdateCheckValidators();
+		}
+
+		return correct;
+	}
+}
@@ -1,23 +1,29 @@
 package com.cube.storm.content.lib.manager;
 
 import android.net.Uri;
+import android.text.TextUtils;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.cube.storm.ContentSettings;
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.helper.ManifestCache;
+import com.cube.storm.content.lib.helper.ManifestIndex;
+import com.cube.storm.content.lib.parser.ContentTypeAdapters;
 import com.cube.storm.content.model.StormApp;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-
-import lombok.Getter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Identifiers manager class used for loading the identifiers structure found in the {@code data/} folder in the bundle.
@@ -50,22 +56,36 @@ import lombok.Getter;
  */
 public class IdentifiersManager
 {
-	@Getter private HashMap<String, StormApp> apps;
+	private static final String FILE_IDENTIFIERS = Constants.FOLDER_DATA + "/identifiers.json";
 
-	private static IdentifiersManager instance;
+	private static volatile IdentifiersManager instance;
 
 	public static IdentifiersManager getInstance()
 	{
 		if (instance == null)
 		{
-			instance = new IdentifiersManager();
+			synchronized (IdentifiersManager.class)
+			{
+				if (instance == null)
+				{
+					instance = new IdentifiersManager();
+				}
+			}
 		}
 
 		return instance;
 	}
 
+	private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "storm-identifiers");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private volatile Index index;
+
 	/**
-	 * Loads the file from the {@param path}
+	 * Loads the file from the {@param path} on the calling thread
 	 *
 	 * @param path The path to the {@code identifiers.json} file
 	 */
@@ -73,36 +93,13 @@ public class IdentifiersManager
 	{
 		try
 		{
+			String hash = getIdentifiersHash(path);
 			InputStream stream = ContentSettings.getInstance().getFileFactory().loadFromUri(path);
 
 			if (stream != null)
 			{
-				JsonObject appsObject = new JsonParser().parse(new InputStreamReader(new BufferedInputStream(stream, 8192))).getAsJsonObject();
-				apps = new HashMap<String, StormApp>();
-
-				for (Map.Entry<String, JsonElement> entry : appsObject.entrySet())
-				{
-					try
-					{
-						String appName = entry.getKey();
-						String packageName = entry.getValue().getAsJsonObject().get("android").getAsJsonObject().get("packageName").getAsString();
-
-						StormApp app = new StormApp();
-						app.setPackageName(packageName);
-						app.setAppId(appName);
-
-						if (entry.getValue() != null && !entry.getValue().isJsonNull())
-						{
-							app.setName(new Gson().fromJson(entry.getValue().getAsJsonObject().get("name"), Map.class));
-						}
-
-						apps.put(appName, app);
-					}
-					catch (Exception e)
-					{
-					 	e.printStackTrace();
-					}
-				}
+				// the loaded apps are only visible once the whole file has been read
+				index = readIndex(stream, path, hash);
 			}
 		}
 		catch (Exception e)
@@ -111,6 +108,44 @@ public class IdentifiersManager
 		}
 	}
 
+	/**
+	 * Loads the file from the {@param path} on a background thread. The previously loaded apps are used until it has
+	 * been loaded.
+	 *
+	 * @param path The path to the {@code identifiers.json} file
+	 *
+	 * @return A future which completes once the file has been loaded
+	 */
+	@NonNull
+	public Future<?> loadAppsAsync(@NonNull Uri path)
+	{
+		return loader.submit(() -> loadApps(path));
+	}
+
+	/**
+	 * Reloads the apps in the background if the deployed {@code identifiers.json} has a different hash to the loaded
+	 * one. Called once a bundle has been deployed.
+	 */
+	public void onContentDeployed()
+	{
+		Index current = index;
+
+		if (current != null && !TextUtils.equals(current.hash, getIdentifiersHash(current.path)))
+		{
+			loadAppsAsync(current.path);
+		}
+	}
+
+	/**
+	 * @return The loaded apps keyed by storm ID, or null if no file has been loaded
+	 */
+	@Nullable
+	public HashMap<String, StormApp> getApps()
+	{
+		Index current = index;
+		return current == null ? null : current.getApps();
+	}
+
 	/**
 	 * Looks up the package name of an app from its storm ID
 	 *
@@ -121,6 +156,86 @@ public class IdentifiersManager
 	@Nullable
 	public String getAppPackageName(@NonNull String id)
 	{
-		return apps == null ? null : apps.get(id).getPackageName();
+		Index current = index;
+		return current == null ? null : current.packageNames.get(id);
+	}
+
+	/**
+	 * @return The hash of the deployed identifiers file if {@param path} is the {@code cache://} identifiers file, or null
+	 */
+	@Nullable
+	private static String getIdentifiersHash(Uri path)
+	{
+		if (!"cache".equalsIgnoreCase(path.getScheme()) || !FILE_IDENTIFIERS.equals(path.getHost() + path.getPath()))
+		{
+			return null;
+		}
+
+		ManifestIndex manifestIndex = ManifestCache.getInstance().getActiveIndex();
+		return manifestIndex == null ? null : manifestIndex.getHash(FILE_IDENTIFIERS);
+	}
+
+	/**
+	 * Streams the identifiers file into an index of apps, reading each app with {@link ContentTypeAdapters#STORM_APP}.
+	 * The name of each app is kept as json, and is only decoded when requested from the {@link StormApp}.
+	 */
+	private static Index readIndex(InputStream stream, Uri path, @Nullable String hash) throws IOException
+	{
+		HashMap<String, StormApp> apps = new HashMap<>();
+		Map<String, String> packageNames = new HashMap<>();
+
+		try (JsonReader reader = new JsonReader(new InputStreamReader(new BufferedInputStream(stream, 8192), "UTF-8")))
+		{
+			reader.beginObject();
+
+			while (reader.hasNext())
+			{
+				String appId = reader.nextName();
+
+				if (reader.peek() != JsonToken.BEGIN_OBJECT)
+				{
+					reader.skipValue();
+					continue;
+				}
+
+				StormApp app = ContentTypeAdapters.STORM_APP.read(reader);
+
+				// apps without an android package can't be linked to
+				if (app.getPackageName() != null)
+				{
+					app.setAppId(appId);
+					apps.put(appId, app);
+					packageNames.put(appId, app.getPackageName());
+				}
+			}
+
+			reader.endObject();
+		}
+
+		return new Index(path, hash, apps, packageNames);
+	}
+
+	/**
+	 * Immutable index of a loaded identifiers file
+	 */
+	private static class Index
+	{
+		private final Uri path;
+		private final String hash;
+		private final HashMap<String, StormApp> apps;
+		private final Map<String, String> packageNames;
+
+		private Index(Uri path, String hash, HashMap<String, StormApp> apps, Map<String, String> packageNames)
+		{
+			this.path = path;
+			this.hash = hash;
+			this.apps = apps;
+			this.packageNames = Collections.unmodifiableMap(packageNames);
+		}
+
+		private HashMap<String, StormApp> getApps()
+		{
+			return apps;
+		}
 	}
 }
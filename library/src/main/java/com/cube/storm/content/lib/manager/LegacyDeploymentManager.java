@@ -0,0 +1,48 @@
+package com.cube.storm.content.lib.manager;
+
+import androidx.annotation.NonNull;
+
+import com.cube.storm.ContentSettings;
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.helper.BundleHelper;
+import com.cube.storm.content.lib.helper.FileHelper;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * {@link DeploymentManager} implementation based on the pre-existing Storm logic from before the introduction of {@link DeploymentManager}
+ * <p/>
+ * Bundles are deployed by copying the extracted files over the top of the content in {@link ContentSettings#getStoragePath()}
+ */
+public class LegacyDeploymentManager implements DeploymentManager
+{
+	@NonNull @Override public File getActiveContentPath()
+	{
+		return new File(ContentSettings.getInstance().getStoragePath());
+	}
+
+	@NonNull @Override public File stage(@NonNull File bundlePath) throws IOException
+	{
+		File path = getActiveContentPath();
+		FileHelper.copyDirectory(bundlePath, path);
+		return path;
+	}
+
+	@Override public void activate(@NonNull File stagedPath)
+	{
+	}
+
+	@Override public void clear()
+	{
+		String path = ContentSettings.getInstance().getStoragePath();
+		FileHelper.deleteRecursive(new File(path, Constants.FOLDER_PAGES));
+		FileHelper.deleteRecursive(new File(path, Constants.FOLDER_DATA));
+		FileHelper.deleteRecursive(new File(path, Constants.FOLDER_CONTENT));
+		FileHelper.deleteRecursive(new File(path, Constants.FOLDER_LANGUAGES));
+		FileHelper.deleteRecursive(new File(path, Constants.FILE_ENTRY_POINT));
+		FileHelper.deleteRecursive(new File(path, Constants.FILE_MANIFEST));
+		FileHelper.deleteRecursive(new File(path, Constants.FILE_MANIFEST_INDEX));
+		BundleHelper.clearUpdateCheckValidators();
+	}
+}
@@ -0,0 +1,209 @@
+package com.cube.storm.content.lib.manager;
+
+import android.text.TextUtils;
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.ContentSettings;
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.helper.BundleHelper;
+import com.cube.storm.content.lib.helper.FileHelper;
+import com.cube.storm.content.lib.helper.ManifestIndex;
+import com.cube.storm.util.lib.manager.FileManager;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link BundleIntegrityManager} which verifies the same manifest hashes as {@link LegacyBundleIntegrityManager}, but
+ * hashes files on a bounded pool of worker threads.
+ * <p/>
+ * Workers take the next unverified file from a shared index until every file has been checked, or until any worker
+ * finds a mismatch, at which point every worker stops and the bundle is deleted.
+ */
+public class ParallelBundleIntegrityManager implements BundleIntegrityManager
+{
+	/**
+	 * Number of progress updates reported over the course of a check
+	 */
+	private static final int PROGRESS_STEPS = 100;
+
+	private final int threadCount;
+
+	/**
+	 * Creates a manager using one thread per available processor
+	 */
+	public ParallelBundleIntegrityManager()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param threadCount the maximum number of files to hash concurrently
+	 */
+	public ParallelBundleIntegrityManager(int threadCount)
+	{
+		this.threadCount = Math.max(1, threadCount);
+	}
+
+	@Override public boolean integrityCheck(String contentPath)
+	{
+		return integrityCheck(contentPath, null);
+	}
+
+	@Override public boolean integrityCheck(String contentPath, @Nullable VerificationListener listener)
+	{
+		List<String[]> files = readManifestFiles(contentPath);
+		if (files == null)
+		{
+			return false;
+		}
+
+		boolean correct = verify(contentPath, files, listener);
+
+		if (!correct)
+		{
+			FileHelper.deleteRecursive(new File(contentPath));
+			BundleHelper.clearUpdateCheckValidators();
+		}
+
+		return correct;
+	}
+
+	/**
+	 * Reads the files listed in the manifest of a bundle directory
+	 *
+	 * @param contentPath the path to the bundle directory
+	 * @return pairs of the file path relative to {@code contentPath} and its expected hash, or null if the bundle has no manifest
+	 */
+	@Nullable
+	protected List<String[]> readManifestFiles(String contentPath)
+	{
+		ManifestIndex manifestIndex = ManifestIndex.load(new File(contentPath));
+
+		if (manifestIndex != null)
+		{
+			List<String[]> files = new ArrayList<>(manifestIndex.size());
+			for (int position = 0; position < manifestIndex.size(); position++)
+			{
+				files.add(new String[]{manifestIndex.getPath(position), manifestIndex.getHash(position)});
+			}
+
+			return files;
+		}
+
+		File manifestFile = new File(contentPath, Constants.FILE_MANIFEST);
+		String contentManifest = ContentSettings.getInstance().getFileManager().readFileAsString(manifestFile);
+		if (TextUtils.isEmpty(contentManifest))
+		{
+			return null;
+		}
+
+		JsonObject manifest = JsonParser.parseString(contentManifest).getAsJsonObject();
+
+		String[] sections = {"pages", "data", "content", "languages"};
+		String[] folders = {Constants.FOLDER_PAGES, Constants.FOLDER_DATA, Constants.FOLDER_CONTENT, Constants.FOLDER_LANGUAGES};
+
+		List<String[]> files = new ArrayList<>();
+		for (int index = 0; index < sections.length; index++)
+		{
+			if (!manifest.has(sections[index]))
+			{
+				continue;
+			}
+
+			for (JsonElement p : manifest.get(sections[index]).getAsJsonArray())
+			{
+				JsonObject page = p.getAsJsonObject();
+				files.add(new String[]{
+					folders[index] + "/" + page.get("src").getAsString(),
+					page.get("hash").getAsString()
+				});
+			}
+		}
+
+		return files;
+	}
+
+	@Override public void enforceIntegrityAfterDeployment(File cachePath)
+	{
+		BundleHelper.deleteUnexpectedFiles(cachePath);
+	}
+
+	private boolean verify(String contentPath, List<String[]> files, @Nullable VerificationListener listener)
+	{
+		final int total = files.size();
+		final int progressStep = Math.max(1, total / PROGRESS_STEPS);
+		final FileManager fileManager = ContentSettings.getInstance().getFileManager();
+		final AtomicInteger nextIndex = new AtomicInteger();
+		final AtomicInteger verifiedCount = new AtomicInteger();
+		final AtomicBoolean failed = new AtomicBoolean();
+		final Object progressLock = new Object();
+
+		int workers = Math.min(threadCount, Math.max(1, total));
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		List<Future<?>> futures = new ArrayList<>(workers);
+
+		try
+		{
+			for (int worker = 0; worker < workers; worker++)
+			{
+				futures.add(executor.submit(() -> {
+					int index;
+					while (!failed.get() && (index = nextIndex.getAndIncrement()) < total)
+					{
+						String[] file = files.get(index);
+						String actualHash = fileManager.getFileHash(contentPath + "/" + file[0]);
+
+						if (actualHash != null && !BundleHelper.hashesMatch(file[1], actualHash))
+						{
+							failed.set(true);
+							Log.w("LightningContent", String.format("File %s has the wrong hash! Expected %s but got %s", file[0], file[1], actualHash));
+							return;
+						}
+
+						int verified = verifiedCount.incrementAndGet();
+						if (listener != null && (verified % progressStep == 0 || verified == total))
+						{
+							synchronized (progressLock)
+							{
+								listener.onFilesVerified(verified, total);
+							}
+						}
+					}
+				}));
+			}
+
+			for (Future<?> future : futures)
+			{
+				future.get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			failed.set(true);
+		}
+		catch (ExecutionException e)
+		{
+			e.printStackTrace();
+			failed.set(true);
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		return !failed.get();
+	}
+}
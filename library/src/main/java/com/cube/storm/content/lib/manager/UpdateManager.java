@@ -55,6 +55,19 @@ public interface UpdateManager
 	 */
 	UpdateContentRequest checkForUpdates(final long lastUpdate);
 
+	/**
+	 * Checks for updates on the server by comparing the remote manifest with the local manifest, and downloads only the
+	 * files whose hashes have changed. Files no longer in the remote manifest are removed when the update is deployed.
+	 * <p>
+	 * Implementations that do not support file level updates fall back to {@link #checkForUpdatesToLocalContent()}.
+	 * <p>
+	 * Despite the name this method will also download updates, not just check for them.
+	 */
+	default UpdateContentRequest checkForFileUpdates()
+	{
+		return checkForUpdatesToLocalContent();
+	}
+
 	/**
 	 * Downloads a tar.gz file from the given endpoint
 	 *
@@ -0,0 +1,283 @@
+package com.cube.storm.content.lib.manager;
+
+import androidx.annotation.NonNull;
+
+import com.cube.storm.ContentSettings;
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.helper.BundleHelper;
+import com.cube.storm.content.lib.helper.FileHelper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import timber.log.Timber;
+
+/**
+ * {@link DeploymentManager} which keeps each deployed bundle in its own directory under
+ * {@code <storagePath>/bundles/} and switches between them by atomically replacing the {@code bundles/active} pointer
+ * file.
+ * <p/>
+ * When a delta is staged, its files are moved into a new version directory and every file it does not replace is
+ * hard-linked from the active version, so no content is copied. The previous version stays untouched and live until
+ * {@link #activate(File)} renames the new pointer over the old one, so a deployment interrupted at any point leaves
+ * the previous content intact.
+ * <p/>
+ * Content deployed by {@link LegacyDeploymentManager} directly into {@link ContentSettings#getStoragePath()} is used as
+ * the active version until the first deployment, and is removed once that deployment is activated.
+ */
+public class VersionedDeploymentManager implements DeploymentManager
+{
+	public static final String FOLDER_BUNDLES = "bundles";
+	public static final String FILE_ACTIVE_POINTER = "active";
+
+	private static final String[] BUNDLE_ENTRIES = {
+		Constants.FOLDER_PAGES,
+		Constants.FOLDER_DATA,
+		Constants.FOLDER_CONTENT,
+		Constants.FOLDER_LANGUAGES,
+		Constants.FILE_ENTRY_POINT,
+		Constants.FILE_MANIFEST,
+		Constants.FILE_MANIFEST_INDEX
+	};
+
+	private volatile File activeContentPath;
+
+	@NonNull @Override public File getActiveContentPath()
+	{
+		File path = activeContentPath;
+
+		if (path == null)
+		{
+			synchronized (this)
+			{
+				if (activeContentPath == null)
+				{
+					activeContentPath = readActivePointer();
+				}
+
+				path = activeContentPath;
+			}
+		}
+
+		return path;
+	}
+
+	@NonNull @Override public synchronized File stage(@NonNull File bundlePath) throws IOException
+	{
+		File active = getActiveContentPath();
+		deleteInactiveVersions(active);
+
+		File staged = new File(getBundlesPath(), Long.toString(System.currentTimeMillis()));
+
+		if (!staged.mkdirs())
+		{
+			throw new IOException("Could not create bundle version directory " + staged);
+		}
+
+		populate(bundlePath, staged, active);
+
+		return staged;
+	}
+
+	/**
+	 * Fills a new version directory with the files of the extracted bundle and the files of the active version it does
+	 * not replace
+	 *
+	 * @param bundlePath The directory the verified bundle or delta was extracted into
+	 * @param staged The new, empty, version directory
+	 * @param active The directory of the active version
+	 */
+	protected void populate(@NonNull File bundlePath, @NonNull File staged, @NonNull File active) throws IOException
+	{
+		moveTree(bundlePath, staged);
+
+		for (String entry : BUNDLE_ENTRIES)
+		{
+			// the index describes the old manifest, it is rebuilt for the staged content
+			if (!Constants.FILE_MANIFEST_INDEX.equals(entry))
+			{
+				linkTree(new File(active, entry), new File(staged, entry));
+			}
+		}
+	}
+
+	@Override public synchronized void activate(@NonNull File stagedPath) throws IOException
+	{
+		File previous = getActiveContentPath();
+		File pointer = new File(getBundlesPath(), FILE_ACTIVE_POINTER);
+		File pointerTmp = new File(getBundlesPath(), FILE_ACTIVE_POINTER + ".tmp");
+
+		FileOutputStream out = new FileOutputStream(pointerTmp);
+
+		try
+		{
+			out.write(stagedPath.getName().getBytes("UTF-8"));
+			out.flush();
+			out.getFD().sync();
+		}
+		finally
+		{
+			out.close();
+		}
+
+		if (!pointerTmp.renameTo(pointer))
+		{
+			throw new IOException("Could not activate bundle version " + stagedPath.getName());
+		}
+
+		activeContentPath = stagedPath;
+		Timber.tag("storm_diagnostics").i("Activated bundle version " + stagedPath.getName());
+
+		if (isLegacyContentPath(previous))
+		{
+			deleteLegacyContent();
+		}
+
+		deleteInactiveVersions(stagedPath);
+	}
+
+	@Override public boolean hasImmutableFiles()
+	{
+		return true;
+	}
+
+	@Override public synchronized void clear()
+	{
+		FileHelper.deleteRecursive(getBundlesPath());
+		deleteLegacyContent();
+		activeContentPath = null;
+		BundleHelper.clearUpdateCheckValidators();
+	}
+
+	private File getBundlesPath()
+	{
+		return new File(ContentSettings.getInstance().getStoragePath(), FOLDER_BUNDLES);
+	}
+
+	private boolean isLegacyContentPath(File path)
+	{
+		return path.equals(new File(ContentSettings.getInstance().getStoragePath()));
+	}
+
+	/**
+	 * Reads the active version from the pointer file, falling back to the storage path if no version has been activated
+	 */
+	private File readActivePointer()
+	{
+		File pointer = new File(getBundlesPath(), FILE_ACTIVE_POINTER);
+
+		if (pointer.exists())
+		{
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(pointer), "UTF-8")))
+			{
+				String version = reader.readLine();
+
+				if (version != null)
+				{
+					File path = new File(getBundlesPath(), version.trim());
+
+					if (path.isDirectory())
+					{
+						return path;
+					}
+				}
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		return new File(ContentSettings.getInstance().getStoragePath());
+	}
+
+	private void deleteLegacyContent()
+	{
+		String path = ContentSettings.getInstance().getStoragePath();
+
+		for (String entry : BUNDLE_ENTRIES)
+		{
+			FileHelper.deleteRecursive(new File(path, entry));
+		}
+	}
+
+	/**
+	 * Deletes every version directory other than {@param active}, including any left over from interrupted deployments
+	 */
+	private void deleteInactiveVersions(File active)
+	{
+		File[] versions = getBundlesPath().listFiles();
+
+		if (versions == null)
+		{
+			return;
+		}
+
+		for (File version : versions)
+		{
+			if (version.isDirectory() && !version.equals(active))
+			{
+				FileHelper.deleteRecursive(version);
+			}
+		}
+	}
+
+	/**
+	 * Moves every file in {@param source} into the same relative location in {@param target}
+	 */
+	private void moveTree(File source, File target) throws IOException
+	{
+		File[] children = source.listFiles();
+
+		if (children == null)
+		{
+			return;
+		}
+
+		for (File child : children)
+		{
+			File targetChild = new File(target, child.getName());
+
+			if (child.isDirectory())
+			{
+				targetChild.mkdirs();
+				moveTree(child, targetChild);
+			}
+			else
+			{
+				FileHelper.moveFile(child, targetChild);
+			}
+		}
+	}
+
+	/**
+	 * Hard-links every file in {@param source} into {@param target} that does not already exist there
+	 */
+	private void linkTree(File source, File target) throws IOException
+	{
+		if (source.isDirectory())
+		{
+			File[] children = source.listFiles();
+
+			if (children == null)
+			{
+				return;
+			}
+
+			target.mkdirs();
+
+			for (File child : children)
+			{
+				linkTree(child, new File(target, child.getName()));
+			}
+		}
+		else if (source.exists() && !target.exists())
+		{
+			FileHelper.linkFile(source, target);
+		}
+	}
+}
@@ -0,0 +1,336 @@
+package com.cube.storm.content.lib.network;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import net.callumtaylor.asynchttp.obj.ConnectionInfo;
+import net.callumtaylor.asynchttp.response.ResponseHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Headers;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * The HTTP engine shared by every request the module makes to the content API, so checking for an update and
+ * downloading it reuse the same connections.
+ * <p/>
+ * Requests are made with a single {@link OkHttpClient}, which pools connections, multiplexes requests to the same host
+ * over HTTP/2, resumes TLS sessions, and caches API responses on disk. Responses are delivered to the
+ * {@link ResponseHandler}s used throughout the module, in the same order as {@link net.callumtaylor.asynchttp.AsyncHttpClient}
+ * delivers them. Every callback is made on the background thread of the request.
+ * <p/>
+ * Access this class via {@link com.cube.storm.ContentSettings#getHttpClient()}. Apps can provide their own
+ * {@link OkHttpClient}, for example to add certificate pinning, by starting from {@link #newDefaultBuilder(File)}.
+ */
+public class ContentHttpClient
+{
+	/**
+	 * Default size of the response cache in bytes
+	 */
+	public static final long DEFAULT_CACHE_SIZE = 10 * 1024 * 1024;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	@Getter private final OkHttpClient okHttpClient;
+
+	/**
+	 * Client for the update checks, which respond with a redirect to the bundle to download
+	 */
+	private final OkHttpClient noRedirectClient;
+
+	/**
+	 * Client for the segments of {@link SegmentedBundleDownload}, which must each have their own connection rather than
+	 * being multiplexed over a single HTTP/2 connection
+	 */
+	private final OkHttpClient segmentClient;
+
+	/**
+	 * Calls made by this engine which have not finished, so they can be cancelled without cancelling other calls made
+	 * with the same {@link OkHttpClient}
+	 */
+	private final Set<Call> pendingCalls = Collections.newSetFromMap(new ConcurrentHashMap<Call, Boolean>());
+
+	/**
+	 * Number of times {@link #cancelAll()} has been called, so work done between calls, such as extracting a
+	 * {@link SegmentedBundleDownload}, can tell it has been cancelled
+	 */
+	private final AtomicInteger cancellations = new AtomicInteger();
+
+	/**
+	 * @param okHttpClient The client to make every request with
+	 */
+	public ContentHttpClient(@NonNull OkHttpClient okHttpClient)
+	{
+		this.okHttpClient = okHttpClient;
+		this.noRedirectClient = okHttpClient.newBuilder()
+			.followRedirects(false)
+			.followSslRedirects(false)
+			.build();
+		this.segmentClient = okHttpClient.newBuilder()
+			.protocols(Collections.singletonList(Protocol.HTTP_1_1))
+			.build();
+	}
+
+	/**
+	 * Creates a builder with the default settings of the engine
+	 *
+	 * @param cacheDirectory The directory to cache responses in, or null to not cache responses
+	 *
+	 * @return The builder
+	 */
+	@NonNull
+	public static OkHttpClient.Builder newDefaultBuilder(@Nullable File cacheDirectory)
+	{
+		OkHttpClient.Builder builder = new OkHttpClient.Builder()
+			.connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
+			.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+			.connectTimeout(30, TimeUnit.SECONDS)
+			.readTimeout(60, TimeUnit.SECONDS);
+
+		if (cacheDirectory != null)
+		{
+			builder.cache(new Cache(cacheDirectory, DEFAULT_CACHE_SIZE));
+		}
+
+		return builder;
+	}
+
+	/**
+	 * Requests a url, following any redirects
+	 *
+	 * @param url The absolute url to request
+	 * @param headers Headers to add to the request, or null
+	 * @param handler The handler to deliver the response to
+	 *
+	 * @return The call, which can be cancelled
+	 */
+	@NonNull
+	public Call get(@NonNull String url, @Nullable Headers headers, @NonNull ResponseHandler<?> handler)
+	{
+		return enqueue(okHttpClient, newRequest(url, headers).build(), handler);
+	}
+
+	/**
+	 * Requests a url without following redirects, so a redirect is delivered to {@link ResponseHandler#onSuccess()}
+	 *
+	 * @param url The absolute url to request
+	 * @param headers Headers to add to the request, or null
+	 * @param handler The handler to deliver the response to
+	 *
+	 * @return The call, which can be cancelled
+	 */
+	@NonNull
+	public Call getWithoutRedirects(@NonNull String url, @Nullable Headers headers, @NonNull ResponseHandler<?> handler)
+	{
+		return enqueue(noRedirectClient, newRequest(url, headers).build(), handler);
+	}
+
+	/**
+	 * Downloads a bundle, following any redirects. Bundles are not stored in the response cache, and are requested
+	 * without transparent compression so byte ranges and progress refer to the file on the server.
+	 *
+	 * @param url The absolute url of the bundle
+	 * @param headers Headers to add to the request, for example a {@code Range}, or null
+	 * @param handler The handler to deliver the response to
+	 *
+	 * @return The call, which can be cancelled
+	 */
+	@NonNull
+	public Call download(@NonNull String url, @Nullable Headers headers, @NonNull ResponseHandler<?> handler)
+	{
+		return enqueue(okHttpClient, newDownloadRequest(url, headers), handler);
+	}
+
+	/**
+	 * Cancels every request made by this engine which has not finished. Cancelled requests are not delivered to
+	 * {@link ResponseHandler#onSuccess()} or {@link ResponseHandler#onFailure()}.
+	 */
+	public void cancelAll()
+	{
+		cancellations.incrementAndGet();
+
+		for (Call call : pendingCalls)
+		{
+			call.cancel();
+		}
+	}
+
+	/**
+	 * Creates a ranged bundle download to be executed on the calling thread, as {@link #download(String, Headers, ResponseHandler)}
+	 * would make it but over HTTP/1.1, so parallel calls use parallel connections. The call is cancelled by
+	 * {@link #cancelAll()} until it is passed to {@link #finished(Call)}.
+	 *
+	 * @param url The absolute url of the bundle
+	 * @param headers Headers to add to the request, or null
+	 *
+	 * @return The call to execute
+	 */
+	Call newDownloadCall(@NonNull String url, @Nullable Headers headers)
+	{
+		Call call = segmentClient.newCall(newDownloadRequest(url, headers));
+		pendingCalls.add(call);
+		return call;
+	}
+
+	/**
+	 * @return The number of times {@link #cancelAll()} has been called
+	 */
+	int getCancellations()
+	{
+		return cancellations.get();
+	}
+
+	/**
+	 * Stops tracking a call created by {@link #newDownloadCall(String, Headers)} once its response has been closed
+	 */
+	void finished(@NonNull Call call)
+	{
+		pendingCalls.remove(call);
+	}
+
+	private Request newDownloadRequest(String url, @Nullable Headers headers)
+	{
+		return newRequest(url, headers)
+			.header("Accept-Encoding", "identity")
+			.cacheControl(new CacheControl.Builder().noStore().build())
+			.build();
+	}
+
+	private Request.Builder newRequest(String url, @Nullable Headers headers)
+	{
+		Request.Builder builder = new Request.Builder().url(url).get();
+
+		if (headers != null)
+		{
+			builder.headers(headers);
+		}
+
+		return builder;
+	}
+
+	private Call enqueue(OkHttpClient client, Request request, ResponseHandler<?> handler)
+	{
+		Call call = client.newCall(request);
+		pendingCalls.add(call);
+		call.enqueue(new Callback()
+		{
+			@Override public void onFailure(Call call, IOException e)
+			{
+				if (!call.isCanceled())
+				{
+					e.printStackTrace();
+					handler.getConnectionInfo().connectionUrl = request.url().toString();
+					handler.getConnectionInfo().requestMethod = request.method();
+					handler.getConnectionInfo().requestHeaders = request.headers();
+					handler.onFailure();
+				}
+
+				pendingCalls.remove(call);
+				handler.onFinish();
+			}
+
+			@Override public void onResponse(Call call, Response response)
+			{
+				try
+				{
+					deliver(call, response, handler);
+				}
+				finally
+				{
+					pendingCalls.remove(call);
+				}
+			}
+		});
+
+		return call;
+	}
+
+	/**
+	 * Streams the body of a response into {@param handler}, and completes it with {@link ResponseHandler#onSuccess()} if
+	 * the response code is below 400 and the whole body was received, or {@link ResponseHandler#onFailure()} otherwise
+	 */
+	private void deliver(Call call, Response response, ResponseHandler<?> handler)
+	{
+		ConnectionInfo connectionInfo = handler.getConnectionInfo();
+		// the requested url rather than the url of any redirect, so handlers can match the response to their request
+		connectionInfo.connectionUrl = call.request().url().toString();
+		connectionInfo.requestMethod = call.request().method();
+		connectionInfo.requestHeaders = call.request().headers();
+		connectionInfo.connectionTime = response.sentRequestAtMillis();
+		connectionInfo.responseTime = response.receivedResponseAtMillis() - response.sentRequestAtMillis();
+		connectionInfo.responseCode = response.code();
+		connectionInfo.responseHeaders = response.headers();
+
+		boolean received = false;
+
+		try (ResponseBody body = response.body())
+		{
+			long totalLength = body == null ? -1 : body.contentLength();
+			connectionInfo.responseLength = Math.max(totalLength, 0);
+
+			if (body != null)
+			{
+				InputStream stream = body.byteStream();
+				byte[] buffer = new byte[BUFFER_SIZE];
+				long totalProcessed = 0;
+				int count;
+
+				while (!call.isCanceled() && (count = stream.read(buffer)) != -1)
+				{
+					totalProcessed += count;
+					handler.onByteChunkReceived(buffer, count, totalProcessed, totalLength);
+					handler.onByteChunkReceivedProcessed(totalProcessed, totalLength);
+				}
+			}
+
+			// a 304 has no body to generate content from
+			if (response.code() != HttpURLConnection.HTTP_NOT_MODIFIED)
+			{
+				handler.generateContent();
+			}
+
+			received = !call.isCanceled();
+		}
+		catch (IOException e)
+		{
+			if (!call.isCanceled())
+			{
+				e.printStackTrace();
+			}
+		}
+
+		if (!call.isCanceled())
+		{
+			if (received && response.code() < 400)
+			{
+				handler.onSuccess();
+			}
+			else
+			{
+				handler.onFailure();
+			}
+		}
+
+		handler.onFinish();
+	}
+}
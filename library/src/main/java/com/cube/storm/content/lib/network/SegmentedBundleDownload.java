@@ -0,0 +1,573 @@
+package com.cube.storm.content.lib.network;
+
+import android.os.SystemClock;
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.ContentSettings;
+import com.cube.storm.content.lib.handler.TarExtractor;
+
+import net.callumtaylor.asynchttp.obj.ConnectionInfo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+import okhttp3.Call;
+import okhttp3.Headers;
+import okhttp3.Response;
+import timber.log.Timber;
+
+/**
+ * Downloads a compressed tar bundle over several parallel connections, each requesting a byte range of the bundle, and
+ * extracts it once every range has been received.
+ * <p/>
+ * The first range is requested on its own to find the size of the bundle and to measure the bandwidth of a single
+ * connection. The rest of the bundle is split into at most {@code maxSegments} segments, sized so each takes about
+ * {@link #TARGET_SEGMENT_TIME} at the measured bandwidth, so slow connections are spread over more connections and small
+ * bundles are not split at all. Each segment is written straight into its place in the preallocated archive, and is
+ * retried up to {@link #MAX_SEGMENT_ATTEMPTS} times from the last byte it received. The segments are requested with
+ * {@code If-Range}, so a bundle which changes on the server during the download fails rather than being stitched from
+ * two versions. Servers which do not support ranges are downloaded over the single probe connection, and bundles
+ * without a strong {@code ETag} or a {@code Last-Modified} date are downloaded again over a single connection.
+ * <p/>
+ * Callbacks are made in the same order as a {@link net.callumtaylor.asynchttp.response.ResponseHandler}: progress,
+ * then {@link #onSuccess()} or {@link #onFailure()}, then {@link #onFinish()}. Progress is reported from the segment
+ * threads, one at a time. The download is cancelled by {@link ContentHttpClient#cancelAll()}, including whilst the
+ * bundle is being extracted, in which case neither {@link #onSuccess()} or {@link #onFailure()} is called.
+ */
+public abstract class SegmentedBundleDownload
+{
+	/**
+	 * Size of the first range, which is used to measure the bandwidth of a single connection
+	 */
+	public static final long PROBE_SIZE = 512 * 1024;
+
+	/**
+	 * Smallest segment the rest of the bundle is split into
+	 */
+	public static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+
+	/**
+	 * Time in milliseconds each segment should take to download at the bandwidth measured by the first range
+	 */
+	public static final long TARGET_SEGMENT_TIME = 4000;
+
+	/**
+	 * Number of times a segment is requested before the download fails
+	 */
+	public static final int MAX_SEGMENT_ATTEMPTS = 3;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * The directory the bundle is extracted into
+	 */
+	@Getter private final String filePath;
+
+	/**
+	 * The probe request, with the response length set to the total size of the extracted files once extracted
+	 */
+	@Getter private final ConnectionInfo connectionInfo = new ConnectionInfo();
+
+	/**
+	 * The number of segments the rest of the bundle was split into after the first range
+	 */
+	@Getter private volatile int segmentCount;
+
+	/**
+	 * The size of the bundle in bytes, or 0 if the server did not report it
+	 */
+	@Getter private volatile long bytesTotal;
+
+	private final String url;
+	private final ContentHttpClient httpClient;
+	private final int maxSegments;
+	private final TarExtractor extractor;
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final Set<Call> activeCalls = Collections.newSetFromMap(new ConcurrentHashMap<Call, Boolean>());
+	private final Object progressLock = new Object();
+	private volatile boolean cancelled;
+	private volatile boolean failed;
+	private int startCancellations;
+
+	/**
+	 * @param httpClient The engine to make the requests with
+	 * @param url The absolute url of the bundle
+	 * @param filePath The directory to extract the bundle into
+	 * @param maxSegments The most connections to download the bundle over at once
+	 */
+	public SegmentedBundleDownload(@NonNull ContentHttpClient httpClient, @NonNull String url, @NonNull String filePath, int maxSegments)
+	{
+		this.httpClient = httpClient;
+		this.url = url;
+		this.filePath = filePath;
+		this.maxSegments = Math.max(1, maxSegments);
+		this.extractor = new TarExtractor(filePath, ContentSettings.getInstance().getBundleCodecs());
+	}
+
+	/**
+	 * @return The number of bytes of the bundle received so far
+	 */
+	public long getBytesReceived()
+	{
+		return bytesReceived.get();
+	}
+
+	public Map<String, String> getExtractedDigests()
+	{
+		return extractor.getExtractedDigests();
+	}
+
+	/**
+	 * Starts the download on a background thread
+	 */
+	public void start()
+	{
+		startCancellations = httpClient.getCancellations();
+		Thread thread = new Thread(this::run, "storm-segmented-download");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Called as bytes of the bundle are received by any of the segments
+	 *
+	 * @param bytesReceived The number of bytes received so far
+	 * @param bytesTotal The size of the bundle, or 0 if unknown
+	 */
+	public void onProgress(long bytesReceived, long bytesTotal){}
+
+	/**
+	 * Called once the bundle has been downloaded and extracted into {@link #getFilePath()}
+	 */
+	public abstract void onSuccess();
+
+	/**
+	 * Called if the bundle could not be downloaded or extracted
+	 */
+	public abstract void onFailure();
+
+	/**
+	 * Called once the download has finished, whether it succeeded, failed or was cancelled
+	 */
+	public void onFinish(){}
+
+	private void run()
+	{
+		File archive = new File(filePath, "bundle.tar");
+		boolean success = false;
+
+		try
+		{
+			download(archive);
+
+			if (isCancelled())
+			{
+				throw new InterruptedIOException("Bundle download cancelled");
+			}
+
+			extractor.setCodec(ContentSettings.getInstance().getBundleCodecs().select(connectionInfo.responseHeaders, url));
+			extractor.extract(new FileInputStream(archive));
+			connectionInfo.responseLength = extractor.getTotalExtracted();
+			success = true;
+		}
+		catch (IOException e)
+		{
+			if (!isCancelled())
+			{
+				e.printStackTrace();
+			}
+		}
+		finally
+		{
+			archive.delete();
+		}
+
+		// the download can be cancelled whilst it is extracted, after its last call has finished
+		if (!isCancelled())
+		{
+			if (success)
+			{
+				onSuccess();
+			}
+			else
+			{
+				onFailure();
+			}
+		}
+
+		onFinish();
+	}
+
+	private void download(File archive) throws IOException
+	{
+		try (RandomAccessFile file = new RandomAccessFile(archive, "rw"))
+		{
+			FileChannel channel = file.getChannel();
+			long probeStart = SystemClock.elapsedRealtime();
+			Call probe = newCall(new Headers.Builder().set("Range", "bytes=0-" + (PROBE_SIZE - 1)).build());
+			boolean ranged;
+			String validator;
+
+			try (Response response = execute(probe))
+			{
+				setConnectionInfo(probe, response);
+				long length = parseTotalLength(response.header("Content-Range"));
+				validator = getValidator(response.headers());
+				ranged = response.code() == HttpURLConnection.HTTP_PARTIAL && length >= 0 && validator != null;
+
+				if (response.code() == HttpURLConnection.HTTP_OK)
+				{
+					// ranges are not supported, so the whole bundle is already on its way
+					downloadWhole(file, channel, response);
+					return;
+				}
+				else if (ranged)
+				{
+					bytesTotal = length;
+					file.setLength(length);
+
+					Segment range = new Segment(0, Math.min(PROBE_SIZE, length));
+					write(response, channel, range);
+
+					if (range.position < range.end)
+					{
+						throw new IOException("Bundle range ended early");
+					}
+				}
+				else if (response.code() != HttpURLConnection.HTTP_PARTIAL)
+				{
+					throw new IOException("Unexpected response code " + response.code() + " for bundle");
+				}
+			}
+			finally
+			{
+				finished(probe);
+			}
+
+			if (!ranged)
+			{
+				// the size of the bundle is unknown, or the ranges could be from different versions of it, so it can't be
+				// split into segments
+				Call call = newCall(null);
+
+				try (Response response = execute(call))
+				{
+					setConnectionInfo(call, response);
+
+					if (response.code() != HttpURLConnection.HTTP_OK)
+					{
+						throw new IOException("Unexpected response code " + response.code() + " for bundle");
+					}
+
+					downloadWhole(file, channel, response);
+				}
+				finally
+				{
+					finished(call);
+				}
+
+				return;
+			}
+
+			long remaining = bytesTotal - PROBE_SIZE;
+
+			if (remaining <= 0)
+			{
+				return;
+			}
+
+			long elapsed = Math.max(1, SystemClock.elapsedRealtime() - probeStart);
+			long bytesPerSecond = PROBE_SIZE * 1000 / elapsed;
+			segmentCount = chooseSegmentCount(remaining, bytesPerSecond, maxSegments);
+
+			Timber.tag("storm_diagnostics").i(String.format("Downloading %d bytes of bundle in %d segments at %d bytes/s per connection", remaining, segmentCount, bytesPerSecond));
+
+			downloadSegments(channel, PROBE_SIZE, bytesTotal, validator);
+		}
+	}
+
+	/**
+	 * Writes the whole bundle from a response which was not ranged
+	 */
+	private void downloadWhole(RandomAccessFile file, FileChannel channel, Response response) throws IOException
+	{
+		Timber.tag("storm_diagnostics").i("Downloading bundle over a single connection");
+
+		segmentCount = 1;
+		bytesTotal = Math.max(response.body().contentLength(), 0);
+		file.setLength(0);
+		write(response, channel, new Segment(0, Long.MAX_VALUE));
+	}
+
+	/**
+	 * Splits {@code [from, to)} into {@link #segmentCount} segments and downloads them in parallel, cancelling the other
+	 * segments as soon as one fails
+	 */
+	private void downloadSegments(FileChannel channel, long from, long to, @NonNull String validator) throws IOException
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(segmentCount, runnable -> {
+			Thread thread = new Thread(runnable, "storm-download-segment");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try
+		{
+			List<Future<?>> segments = new ArrayList<>();
+			long segmentSize = (to - from + segmentCount - 1) / segmentCount;
+
+			for (long start = from; start < to; start += segmentSize)
+			{
+				long segmentStart = start;
+				long segmentEnd = Math.min(start + segmentSize, to);
+				segments.add(executor.submit(() -> {
+					downloadSegment(channel, segmentStart, segmentEnd, validator);
+					return null;
+				}));
+			}
+
+			for (Future<?> segment : segments)
+			{
+				segment.get();
+			}
+		}
+		catch (ExecutionException e)
+		{
+			// the other segments are cancelled because of the failure, not by the app
+			failed = true;
+
+			for (Call call : activeCalls)
+			{
+				call.cancel();
+			}
+
+			throw e.getCause() instanceof IOException ? (IOException)e.getCause() : new IOException(e.getCause());
+		}
+		catch (InterruptedException e)
+		{
+			throw new InterruptedIOException();
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Downloads {@code [start, end)} of the bundle into {@param channel}, retrying from the last byte received if the
+	 * connection fails
+	 */
+	private void downloadSegment(FileChannel channel, long start, long end, @NonNull String validator) throws IOException
+	{
+		Segment segment = new Segment(start, end);
+		int attempt = 0;
+
+		while (segment.position < segment.end)
+		{
+			Call call = newCall(new Headers.Builder()
+				.set("Range", "bytes=" + segment.position + "-" + (segment.end - 1))
+				.set("If-Range", validator)
+				.build());
+
+			try (Response response = execute(call))
+			{
+				if (response.code() != HttpURLConnection.HTTP_PARTIAL)
+				{
+					// a full response to If-Range means the bundle has changed, so the download fails without retrying
+					failed = true;
+					throw new IOException("Unexpected response code " + response.code() + " for bundle segment");
+				}
+
+				long position = segment.position;
+				write(response, channel, segment);
+
+				if (segment.position == position)
+				{
+					throw new IOException("Bundle segment ended early");
+				}
+			}
+			catch (IOException e)
+			{
+				if (call.isCanceled() || failed || ++attempt >= MAX_SEGMENT_ATTEMPTS)
+				{
+					throw e;
+				}
+
+				Timber.tag("storm_diagnostics").i(String.format("Retrying bundle segment from byte %d after %s", segment.position, e.getMessage()));
+			}
+			finally
+			{
+				finished(call);
+			}
+		}
+	}
+
+	/**
+	 * Writes the body of {@param response} into {@param channel} at the position of {@param segment}, stopping at the end
+	 * of the segment. The position is advanced as each chunk is written, so a retry continues from the last byte written.
+	 */
+	private void write(Response response, FileChannel channel, Segment segment) throws IOException
+	{
+		InputStream stream = response.body().byteStream();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int count;
+
+		while (segment.position < segment.end && (count = stream.read(buffer, 0, (int)Math.min(buffer.length, segment.end - segment.position))) != -1)
+		{
+			ByteBuffer data = ByteBuffer.wrap(buffer, 0, count);
+
+			while (data.hasRemaining())
+			{
+				segment.position += channel.write(data, segment.position);
+			}
+
+			long received = bytesReceived.addAndGet(count);
+
+			synchronized (progressLock)
+			{
+				onProgress(received, bytesTotal);
+			}
+		}
+	}
+
+	private Call newCall(@Nullable Headers headers) throws IOException
+	{
+		if (isCancelled() || failed)
+		{
+			throw new InterruptedIOException("Bundle download cancelled");
+		}
+
+		Call call = httpClient.newDownloadCall(url, headers);
+		activeCalls.add(call);
+		return call;
+	}
+
+	private Response execute(Call call) throws IOException
+	{
+		Response response = call.execute();
+
+		if (response.body() == null)
+		{
+			response.close();
+			throw new IOException("Bundle response has no body");
+		}
+
+		return response;
+	}
+
+	private void finished(Call call)
+	{
+		activeCalls.remove(call);
+		httpClient.finished(call);
+
+		if (call.isCanceled() && !failed)
+		{
+			// only cancelAll() cancels a call without the download failing first
+			cancelled = true;
+		}
+	}
+
+	private boolean isCancelled()
+	{
+		return cancelled || httpClient.getCancellations() != startCancellations;
+	}
+
+	private void setConnectionInfo(Call call, Response response)
+	{
+		connectionInfo.connectionUrl = url;
+		connectionInfo.requestMethod = call.request().method();
+		connectionInfo.requestHeaders = call.request().headers();
+		connectionInfo.connectionTime = response.sentRequestAtMillis();
+		connectionInfo.responseTime = response.receivedResponseAtMillis() - response.sentRequestAtMillis();
+		connectionInfo.responseCode = response.code();
+		connectionInfo.responseHeaders = response.headers();
+	}
+
+	/**
+	 * Chooses how many segments to split {@param remaining} bytes into, so each segment takes about
+	 * {@link #TARGET_SEGMENT_TIME} at {@param bytesPerSecond} and is no smaller than {@link #MIN_SEGMENT_SIZE}
+	 */
+	static int chooseSegmentCount(long remaining, long bytesPerSecond, int maxSegments)
+	{
+		long segmentSize = Math.max(MIN_SEGMENT_SIZE, bytesPerSecond * TARGET_SEGMENT_TIME / 1000);
+		long count = (remaining + segmentSize - 1) / segmentSize;
+
+		return (int)Math.max(1, Math.min(maxSegments, count));
+	}
+
+	/**
+	 * @return The total length from a {@code Content-Range} header, for example {@code bytes 0-1023/4096}, or -1 if unknown
+	 */
+	private static long parseTotalLength(@Nullable String contentRange)
+	{
+		if (contentRange == null)
+		{
+			return -1;
+		}
+
+		int separator = contentRange.lastIndexOf('/');
+
+		try
+		{
+			return separator == -1 ? -1 : Long.parseLong(contentRange.substring(separator + 1).trim());
+		}
+		catch (NumberFormatException e)
+		{
+			return -1;
+		}
+	}
+
+	/**
+	 * @return The strong {@code ETag} or the {@code Last-Modified} date of the bundle, to request segments with
+	 * {@code If-Range}, or null if the server sent neither
+	 */
+	@Nullable
+	private static String getValidator(Headers headers)
+	{
+		String etag = headers.get("ETag");
+
+		if (!TextUtils.isEmpty(etag) && !etag.startsWith("W/"))
+		{
+			return etag;
+		}
+
+		String lastModified = headers.get("Last-Modified");
+		return TextUtils.isEmpty(lastModified) ? null : lastModified;
+	}
+
+	/**
+	 * A byte range of the bundle, and the position the next byte received for it is written to
+	 */
+	private static class Segment
+	{
+		private long position;
+		private final long end;
+
+		private Segment(long start, long end)
+		{
+			this.position = start;
+			this.end = end;
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package com.cube.storm.content.lib.network;
+
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.ContentSettings;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Headers;
+
+/**
+ * Persisted {@code ETag} and {@code Last-Modified} validators of the update check endpoints, used to make the checks
+ * conditional so the server can answer {@code 304 Not Modified} when there is still no update.
+ * <p/>
+ * Validators are keyed by the url of the check, which includes the app ID, the environment and the endpoint, and are
+ * stored in {@link #FILE_VALIDATORS} in {@link ContentSettings#getStoragePath()}. Only the validator of the latest url of
+ * each endpoint is kept, so the {@code timestamp} of delta checks does not grow the file with every deployment. A validator is only stored once a check
+ * has found there is no update, so a {@code 304} always means the deployed content is up to date. Validators are
+ * cleared with the deployed content by {@link com.cube.storm.content.lib.helper.BundleHelper#clearCache()}.
+ * <p/>
+ * Access this class via {@link ContentSettings#getUpdateCheckValidators()}
+ */
+public class UpdateCheckValidators
+{
+	public static final String FILE_VALIDATORS = "update_validators.json";
+
+	private static final Gson gson = new Gson();
+
+	private final AtomicLong checkCount = new AtomicLong();
+	private final AtomicLong notModifiedCount = new AtomicLong();
+
+	private Map<String, Validator> validators;
+
+	/**
+	 * Adds the {@code If-None-Match} and {@code If-Modified-Since} headers for the stored validator of a check
+	 *
+	 * @param url The url of the check
+	 * @param headers The headers of the check to add to
+	 */
+	public synchronized void addConditionalHeaders(@NonNull String url, @NonNull Headers.Builder headers)
+	{
+		Validator validator = getValidators().get(url);
+
+		if (validator == null)
+		{
+			return;
+		}
+
+		if (!TextUtils.isEmpty(validator.etag))
+		{
+			headers.set("If-None-Match", validator.etag);
+		}
+
+		if (!TextUtils.isEmpty(validator.lastModified))
+		{
+			headers.set("If-Modified-Since", validator.lastModified);
+		}
+	}
+
+	/**
+	 * Stores the validators of a check which found there is no update
+	 *
+	 * @param url The url of the check
+	 * @param responseHeaders The headers of the response, or null
+	 */
+	public synchronized void save(@NonNull String url, @Nullable Headers responseHeaders)
+	{
+		String etag = responseHeaders == null ? null : responseHeaders.get("ETag");
+		String lastModified = responseHeaders == null ? null : responseHeaders.get("Last-Modified");
+
+		if (TextUtils.isEmpty(etag) && TextUtils.isEmpty(lastModified))
+		{
+			remove(url);
+			return;
+		}
+
+		// the timestamp of the previous checks of the endpoint is out of date
+		String endpoint = getEndpoint(url);
+		Iterator<String> urls = getValidators().keySet().iterator();
+
+		while (urls.hasNext())
+		{
+			if (endpoint.equals(getEndpoint(urls.next())))
+			{
+				urls.remove();
+			}
+		}
+
+		Validator validator = new Validator();
+		validator.etag = etag;
+		validator.lastModified = lastModified;
+		getValidators().put(url, validator);
+		write();
+	}
+
+	/**
+	 * Removes the validators of a check, so the next check is not conditional
+	 *
+	 * @param url The url of the check
+	 */
+	public synchronized void remove(@NonNull String url)
+	{
+		if (getValidators().remove(url) != null)
+		{
+			write();
+		}
+	}
+
+	/**
+	 * Removes every stored validator
+	 */
+	public synchronized void clear()
+	{
+		validators = new HashMap<>();
+		getValidatorsFile().delete();
+	}
+
+	/**
+	 * Counts a finished check
+	 *
+	 * @param notModified Whether the server answered {@code 304 Not Modified}
+	 */
+	public void onCheckFinished(boolean notModified)
+	{
+		checkCount.incrementAndGet();
+
+		if (notModified)
+		{
+			notModifiedCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @return The number of update checks which have finished since the app started
+	 */
+	public long getCheckCount()
+	{
+		return checkCount.get();
+	}
+
+	/**
+	 * @return The number of update checks which were answered with {@code 304 Not Modified} since the app started
+	 */
+	public long getNotModifiedCount()
+	{
+		return notModifiedCount.get();
+	}
+
+	private Map<String, Validator> getValidators()
+	{
+		if (validators == null)
+		{
+			File file = getValidatorsFile();
+
+			if (file.exists())
+			{
+				try (Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8"))
+				{
+					validators = gson.fromJson(reader, new TypeToken<HashMap<String, Validator>>(){}.getType());
+				}
+				catch (Exception e)
+				{
+					e.printStackTrace();
+				}
+			}
+
+			if (validators == null)
+			{
+				validators = new HashMap<>();
+			}
+		}
+
+		return validators;
+	}
+
+	/**
+	 * Writes the validators to a temporary file which replaces the validators file, so an interrupted write never
+	 * leaves a truncated file
+	 */
+	private void write()
+	{
+		File file = getValidatorsFile();
+		File tmp = new File(file.getPath() + ".tmp");
+
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"))
+		{
+			gson.toJson(validators, writer);
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			tmp.delete();
+			return;
+		}
+
+		if (!tmp.renameTo(file))
+		{
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * @return The url of a check without its {@code timestamp} query parameter
+	 */
+	private static String getEndpoint(String url)
+	{
+		int queryStart = url.indexOf('?');
+
+		if (queryStart == -1)
+		{
+			return url;
+		}
+
+		StringBuilder endpoint = new StringBuilder(url.length()).append(url, 0, queryStart + 1);
+
+		for (String parameter : url.substring(queryStart + 1).split("&"))
+		{
+			if (!parameter.equals("timestamp") && !parameter.startsWith("timestamp="))
+			{
+				endpoint.append(parameter).append('&');
+			}
+		}
+
+		return endpoint.toString();
+	}
+
+	private File getValidatorsFile()
+	{
+		return new File(ContentSettings.getInstance().getStoragePath(), FILE_VALIDATORS);
+	}
+
+	private static class Validator
+	{
+		private String etag;
+		private String lastModified;
+	}
+}
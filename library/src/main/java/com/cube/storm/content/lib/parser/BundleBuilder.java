@@ -5,15 +5,25 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.cube.storm.ContentSettings;
+import com.cube.storm.content.lib.factory.FileFactory;
 import com.cube.storm.content.model.Manifest;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
 
 import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Gson processor used to build models in the content such as manifest.json
@@ -25,15 +35,16 @@ import java.io.UnsupportedEncodingException;
  */
 public abstract class BundleBuilder
 {
-	private static Gson builder;
+	private static volatile Gson builder;
 
 	/**
 	 * Required to include view overrides
+	 * <p/>
+	 * The new instance replaces the old one in a single write, so other threads never see it unset
 	 */
 	public void rebuild()
 	{
-		builder = null;
-		getGson();
+		builder = createGson();
 	}
 
 	/**
@@ -45,13 +56,30 @@ public abstract class BundleBuilder
 	@NonNull
 	private Gson getGson()
 	{
-		if (builder == null)
+		Gson gson = builder;
+
+		if (gson == null)
 		{
-			GsonBuilder gsonBuilder = new GsonBuilder();
-			builder = gsonBuilder.create();
+			synchronized (BundleBuilder.class)
+			{
+				if (builder == null)
+				{
+					builder = createGson();
+				}
+
+				gson = builder;
+			}
 		}
 
-		return builder;
+		return gson;
+	}
+
+	@NonNull
+	private Gson createGson()
+	{
+		GsonBuilder gsonBuilder = new GsonBuilder();
+		ContentTypeAdapters.register(gsonBuilder);
+		return gsonBuilder.create();
 	}
 
 	/**
@@ -74,6 +102,108 @@ public abstract class BundleBuilder
 		return null;
 	}
 
+	/**
+	 * Reads the timestamp of a manifest from a file Uri without building the manifest's file lists
+	 *
+	 * @param fileUri The file Uri to load from
+	 *
+	 * @return The manifest timestamp, or null if the manifest could not be loaded or has no timestamp
+	 */
+	@Nullable
+	public Long buildManifestTimestamp(@NonNull Uri fileUri)
+	{
+		InputStream stream = ContentSettings.getInstance().getFileFactory().loadFromUri(fileUri);
+
+		if (stream != null)
+		{
+			try
+			{
+				String timestamp = buildTopLevelFields(stream, "timestamp").get("timestamp");
+
+				if (timestamp != null)
+				{
+					try
+					{
+						return Long.parseLong(timestamp);
+					}
+					catch (NumberFormatException e)
+					{
+						return (long)Double.parseDouble(timestamp);
+					}
+				}
+			}
+			catch (Exception e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Reads scalar fields from the top level object of a json stream using a streaming parser. Arrays and objects are
+	 * skipped without being built, and reading stops as soon as every requested field has been found.
+	 *
+	 * @param input The json stream input to read from. The stream is closed once read
+	 * @param fieldNames The names of the fields to read
+	 *
+	 * @return The string value of each requested field that was found. Null values are omitted
+	 *
+	 * @throws IOException if the stream is not a json object
+	 */
+	@NonNull
+	public Map<String, String> buildTopLevelFields(@NonNull InputStream input, @NonNull String... fieldNames) throws IOException
+	{
+		Set<String> remaining = new HashSet<>(Arrays.asList(fieldNames));
+		Map<String, String> fields = new HashMap<>();
+		JsonReader reader = new JsonReader(new InputStreamReader(new BufferedInputStream(input, 8192), "UTF-8"));
+
+		try
+		{
+			reader.beginObject();
+
+			while (!remaining.isEmpty() && reader.hasNext())
+			{
+				String name = reader.nextName();
+
+				if (!remaining.contains(name))
+				{
+					reader.skipValue();
+					continue;
+				}
+
+				remaining.remove(name);
+
+				switch (reader.peek())
+				{
+					case STRING:
+					case NUMBER:
+					{
+						fields.put(name, reader.nextString());
+						break;
+					}
+					case BOOLEAN:
+					{
+						fields.put(name, String.valueOf(reader.nextBoolean()));
+						break;
+					}
+					default:
+					{
+						reader.skipValue();
+						break;
+					}
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		return fields;
+	}
+
 	/**
 	 * Builds a manifest object from a byte array json string
 	 *
@@ -138,6 +268,159 @@ public abstract class BundleBuilder
 		return outClass.cast(data);
 	}
 
+	/**
+	 * Builds a class from a file Uri. If {@link ContentSettings#getParsedObjectCache()} is set, the object is cached
+	 * until the hash of the file changes. If the file was prewarmed by {@link ContentSettings#getPrewarmer()}, the
+	 * prewarmed object is returned the first time.
+	 *
+	 * @param fileUri The file Uri to load from
+	 * @param outClass The out class type
+	 * @param <T> The type of class returned
+	 *
+	 * @return The built object, or null
+	 */
+	@Nullable
+	public <T> T build(@NonNull Uri fileUri, @NonNull Class<T> outClass)
+	{
+		ContentPrewarmer prewarmer = ContentSettings.getInstance().getPrewarmer();
+
+		if (prewarmer != null)
+		{
+			T prewarmed = prewarmer.take(fileUri, outClass);
+
+			if (prewarmed != null)
+			{
+				return prewarmed;
+			}
+		}
+
+		return buildFromFile(fileUri, outClass);
+	}
+
+	/**
+	 * Builds a class from a file Uri, using {@link ContentSettings#getParsedObjectCache()} but not the prewarmed objects
+	 */
+	@Nullable
+	<T> T buildFromFile(@NonNull Uri fileUri, @NonNull Class<T> outClass)
+	{
+		ParsedObjectCache cache = ContentSettings.getInstance().getParsedObjectCache();
+		String hash = cache == null ? null : ParsedObjectCache.getFileHash(fileUri);
+
+		if (hash != null)
+		{
+			T cached = cache.get(fileUri, hash, outClass);
+
+			if (cached != null)
+			{
+				return cached;
+			}
+		}
+
+		FileFactory fileFactory = ContentSettings.getInstance().getFileFactory();
+
+		if (!ContentSettings.getInstance().getDeploymentManager().hasImmutableFiles())
+		{
+			// large files would not be mapped, so stream them rather than reading them into a buffer of their own size
+			return buildFromStream(fileUri, hash, outClass);
+		}
+
+		ByteBuffer buffer = fileFactory.loadBufferFromUri(fileUri);
+
+		if (buffer == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			long size = buffer.remaining();
+			T data = build(buffer, outClass);
+
+			if (hash != null && data != null)
+			{
+				cache.put(fileUri, hash, outClass, data, size);
+			}
+
+			return data;
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
+		finally
+		{
+			fileFactory.recycleBuffer(buffer);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Builds a class from a file Uri streamed by {@link FileFactory#loadFromUri(Uri)}, caching it if {@param hash} is set
+	 */
+	@Nullable
+	private <T> T buildFromStream(@NonNull Uri fileUri, @Nullable String hash, @NonNull Class<T> outClass)
+	{
+		InputStream stream = ContentSettings.getInstance().getFileFactory().loadFromUri(fileUri);
+
+		if (stream == null)
+		{
+			return null;
+		}
+
+		CountingInputStream counter = new CountingInputStream(stream);
+
+		try
+		{
+			T data = build(counter, outClass);
+
+			if (hash != null && data != null)
+			{
+				ContentSettings.getInstance().getParsedObjectCache().put(fileUri, hash, outClass, data, counter.count);
+			}
+
+			return data;
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
+		finally
+		{
+			try
+			{
+				counter.close();
+			}
+			catch (IOException ignore){}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Builds a class from a json buffer, such as one loaded by {@link com.cube.storm.content.lib.factory.FileFactory#loadBufferFromUri(Uri)}.
+	 * The buffer is read through a stream, so no copy of the file is made, and its position is not changed.
+	 *
+	 * @param input The UTF-8 json buffer to build from
+	 * @param outClass The out class type
+	 * @param <T> The type of class returned
+	 *
+	 * @return The built object, or null
+	 */
+	@Nullable
+	public <T> T build(ByteBuffer input, Class<T> outClass)
+	{
+		try
+		{
+			Object data = getGson().fromJson(new InputStreamReader(new ByteBufferInputStream(input.duplicate()), "UTF-8"), outClass);
+			return outClass.cast(data);
+		}
+		catch (UnsupportedEncodingException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
 	/**
 	 * Builds a class from a json string input
 	 *
@@ -167,4 +450,88 @@ public abstract class BundleBuilder
 	{
 		return outClass.cast(getGson().fromJson(input, outClass));
 	}
+
+	/**
+	 * Reads the remaining bytes of a buffer without copying them
+	 */
+	private static class ByteBufferInputStream extends InputStream
+	{
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+
+		@Override public int read()
+		{
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override public int read(@NonNull byte[] bytes, int offset, int length)
+		{
+			if (length == 0)
+			{
+				return 0;
+			}
+
+			if (!buffer.hasRemaining())
+			{
+				return -1;
+			}
+
+			int count = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override public int available()
+		{
+			return buffer.remaining();
+		}
+	}
+
+	/**
+	 * Counts the bytes read from a stream, to weigh the objects in {@link ParsedObjectCache}
+	 */
+	private static class CountingInputStream extends FilterInputStream
+	{
+		private long count;
+
+		private CountingInputStream(InputStream stream)
+		{
+			super(stream);
+		}
+
+		@Override public int read() throws IOException
+		{
+			int value = super.read();
+
+			if (value != -1)
+			{
+				count++;
+			}
+
+			return value;
+		}
+
+		@Override public int read(@NonNull byte[] bytes, int offset, int length) throws IOException
+		{
+			int read = super.read(bytes, offset, length);
+
+			if (read > 0)
+			{
+				count += read;
+			}
+
+			return read;
+		}
+
+		@Override public long skip(long bytes) throws IOException
+		{
+			long skipped = super.skip(bytes);
+			count += skipped;
+			return skipped;
+		}
+	}
 }
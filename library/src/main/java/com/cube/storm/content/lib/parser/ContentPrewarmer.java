@@ -0,0 +1,192 @@
+package com.cube.storm.content.lib.parser;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.ContentSettings;
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.helper.ManifestCache;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import timber.log.Timber;
+
+/**
+ * Loads the files needed for the first screen concurrently on background threads when the app starts, so they are
+ * parsed by the time they are first requested.
+ * <p/>
+ * The deployed manifest and its index are always loaded into {@link ManifestCache}. Any other file, such as
+ * {@code app.json} or the active language pack, is built as the class it is registered with in
+ * {@link com.cube.storm.ContentSettings.Builder#prewarm(Uri, Class)}. The first call to
+ * {@link BundleBuilder#build(Uri, Class)} with the same Uri and class waits for and takes the prewarmed object instead
+ * of parsing the file again. Objects loaded before the content was redeployed are discarded rather than taken.
+ * <p/>
+ * Call {@link #onFirstScreenLoaded()} once the first screen is shown, so prewarmed objects that were never taken are
+ * released.
+ */
+public class ContentPrewarmer
+{
+	private static final int THREAD_COUNT = 3;
+
+	private final Map<String, Future<Prewarmed>> futures = new ConcurrentHashMap<>();
+	private final Map<String, Long> loadTimes = new ConcurrentHashMap<>();
+	private final long startTime = SystemClock.elapsedRealtime();
+	private volatile long timeToFirstContent = -1;
+
+	/**
+	 * Starts loading the manifest and the given files
+	 *
+	 * @param files The files to build, and the class to build each one as
+	 */
+	public ContentPrewarmer(@NonNull Map<Uri, Class<?>> files)
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT, runnable -> {
+			Thread thread = new Thread(runnable, "storm-prewarm");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		Uri manifestUri = Uri.parse("cache://" + Constants.FILE_MANIFEST);
+		executor.execute(() -> {
+			ManifestCache.getInstance().getActiveIndex();
+			ManifestCache.getInstance().getManifest(manifestUri);
+			recordLoadTime(manifestUri.toString());
+		});
+
+		for (Map.Entry<Uri, Class<?>> file : files.entrySet())
+		{
+			Uri uri = file.getKey();
+			Class<?> outClass = file.getValue();
+
+			futures.put(getKey(uri, outClass), executor.submit(() -> {
+				int generation = ManifestCache.getInstance().getGeneration();
+				Object data = ContentSettings.getInstance().getBundleBuilder().buildFromFile(uri, outClass);
+				recordLoadTime(uri.toString());
+				return new Prewarmed(generation, data);
+			}));
+		}
+
+		// running tasks still complete, the threads exit once they have
+		executor.shutdown();
+	}
+
+	/**
+	 * Takes the prewarmed object for a file, waiting for it to finish loading if needed. Each object is only returned
+	 * once.
+	 *
+	 * @param fileUri The file Uri
+	 * @param outClass The class the file was registered with
+	 *
+	 * @return The object, or null if the file was not prewarmed as {@param outClass}, failed to load, or was loaded
+	 * before the content was redeployed
+	 */
+	@Nullable
+	public <T> T take(@NonNull Uri fileUri, @NonNull Class<T> outClass)
+	{
+		Future<Prewarmed> future = futures.remove(getKey(fileUri, outClass));
+
+		if (future == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			Prewarmed prewarmed = future.get();
+
+			if (prewarmed.generation != ManifestCache.getInstance().getGeneration())
+			{
+				// every other prewarmed object is out of date too
+				futures.clear();
+				return null;
+			}
+
+			T data = outClass.cast(prewarmed.data);
+
+			if (data != null && timeToFirstContent < 0)
+			{
+				timeToFirstContent = SystemClock.elapsedRealtime() - startTime;
+				Timber.tag("storm_diagnostics").i("Time to first content " + timeToFirstContent + "ms");
+			}
+
+			return data;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e)
+		{
+			e.printStackTrace();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Releases the prewarmed objects that have not been taken. Call this once the first screen has loaded, as any file
+	 * it did not request is unlikely to be requested before it is evicted by a deployment
+	 */
+	public void onFirstScreenLoaded()
+	{
+		for (Future<Prewarmed> future : futures.values())
+		{
+			future.cancel(false);
+		}
+
+		futures.clear();
+	}
+
+	/**
+	 * @return The time in milliseconds from the settings being built until a prewarmed object was first taken, or -1 if
+	 * none has been taken yet
+	 */
+	public long getTimeToFirstContent()
+	{
+		return timeToFirstContent;
+	}
+
+	/**
+	 * @return The time in milliseconds from the settings being built until each prewarmed file finished loading, keyed
+	 * by Uri
+	 */
+	@NonNull
+	public Map<String, Long> getLoadTimes()
+	{
+		return Collections.unmodifiableMap(new LinkedHashMap<>(loadTimes));
+	}
+
+	private void recordLoadTime(String uri)
+	{
+		loadTimes.put(uri, SystemClock.elapsedRealtime() - startTime);
+	}
+
+	private static String getKey(Uri fileUri, Class<?> outClass)
+	{
+		return fileUri.toString() + "#" + outClass.getName();
+	}
+
+	/**
+	 * An object built by the prewarmer, and the {@link ManifestCache#getGeneration()} of the content it was built from
+	 */
+	private static class Prewarmed
+	{
+		private final int generation;
+		private final Object data;
+
+		private Prewarmed(int generation, Object data)
+		{
+			this.generation = generation;
+			this.data = data;
+		}
+	}
+}
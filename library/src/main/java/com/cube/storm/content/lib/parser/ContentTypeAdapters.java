@@ -0,0 +1,431 @@
+package com.cube.storm.content.lib.parser;
+
+import androidx.annotation.NonNull;
+
+import com.cube.storm.content.model.Manifest;
+import com.cube.storm.content.model.Manifest.FileDescriptor;
+import com.cube.storm.content.model.StormApp;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the hand written {@link TypeAdapter}s for the models of the bundle, which read and write json without
+ * reflection.
+ * <p/>
+ * The adapters are stateless and {@link Gson} is immutable once built, so the instances here are shared between threads.
+ */
+public class ContentTypeAdapters
+{
+	public static final TypeAdapter<FileDescriptor> FILE_DESCRIPTOR = new FileDescriptorTypeAdapter();
+	public static final TypeAdapter<Manifest> MANIFEST = new ManifestTypeAdapter();
+	public static final TypeAdapter<StormApp> STORM_APP = new StormAppTypeAdapter();
+
+	private static final Gson gson = register(new GsonBuilder()).create();
+
+	/**
+	 * @return A shared {@link Gson} instance with every adapter registered
+	 */
+	@NonNull
+	public static Gson getGson()
+	{
+		return gson;
+	}
+
+	/**
+	 * Registers every adapter with a {@link GsonBuilder}
+	 *
+	 * @param builder The builder to register the adapters with
+	 *
+	 * @return The same builder, for chaining
+	 */
+	@NonNull
+	public static GsonBuilder register(@NonNull GsonBuilder builder)
+	{
+		return builder
+			.registerTypeAdapter(FileDescriptor.class, FILE_DESCRIPTOR)
+			.registerTypeAdapter(Manifest.class, MANIFEST)
+			.registerTypeAdapter(StormApp.class, STORM_APP);
+	}
+
+	private static class FileDescriptorTypeAdapter extends TypeAdapter<FileDescriptor>
+	{
+		@Override public void write(JsonWriter out, FileDescriptor value) throws IOException
+		{
+			if (value == null)
+			{
+				out.nullValue();
+				return;
+			}
+
+			out.beginObject();
+			out.name("src").value(value.getSrc());
+			out.name("hash").value(value.getHash());
+			out.endObject();
+		}
+
+		@Override public FileDescriptor read(JsonReader in) throws IOException
+		{
+			if (in.peek() == JsonToken.NULL)
+			{
+				in.nextNull();
+				return null;
+			}
+
+			String src = null;
+			String hash = null;
+			in.beginObject();
+
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "src":
+					{
+						src = nextStringOrNull(in);
+						break;
+					}
+					case "hash":
+					{
+						hash = nextStringOrNull(in);
+						break;
+					}
+					default:
+					{
+						in.skipValue();
+						break;
+					}
+				}
+			}
+
+			in.endObject();
+			return new FileDescriptor(src, hash);
+		}
+	}
+
+	private static class ManifestTypeAdapter extends TypeAdapter<Manifest>
+	{
+		@Override public void write(JsonWriter out, Manifest value) throws IOException
+		{
+			if (value == null)
+			{
+				out.nullValue();
+				return;
+			}
+
+			out.beginObject();
+			out.name("timestamp").value(value.getTimestamp());
+			writeFiles(out, "content", value.getContent());
+			writeFiles(out, "pages", value.getPages());
+			writeFiles(out, "languages", value.getLanguages());
+			writeFiles(out, "data", value.getData());
+			out.endObject();
+		}
+
+		@Override public Manifest read(JsonReader in) throws IOException
+		{
+			if (in.peek() == JsonToken.NULL)
+			{
+				in.nextNull();
+				return null;
+			}
+
+			long timestamp = 0;
+			ArrayList<FileDescriptor> content = null;
+			ArrayList<FileDescriptor> pages = null;
+			ArrayList<FileDescriptor> languages = null;
+			ArrayList<FileDescriptor> data = null;
+			in.beginObject();
+
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "timestamp":
+					{
+						timestamp = in.nextLong();
+						break;
+					}
+					case "content":
+					{
+						content = readFiles(in);
+						break;
+					}
+					case "pages":
+					{
+						pages = readFiles(in);
+						break;
+					}
+					case "languages":
+					{
+						languages = readFiles(in);
+						break;
+					}
+					case "data":
+					{
+						data = readFiles(in);
+						break;
+					}
+					default:
+					{
+						in.skipValue();
+						break;
+					}
+				}
+			}
+
+			in.endObject();
+			return new Manifest(timestamp, content, pages, languages, data);
+		}
+
+		private void writeFiles(JsonWriter out, String name, List<FileDescriptor> files) throws IOException
+		{
+			if (files == null)
+			{
+				return;
+			}
+
+			out.name(name).beginArray();
+			for (FileDescriptor file : files)
+			{
+				FILE_DESCRIPTOR.write(out, file);
+			}
+			out.endArray();
+		}
+
+		private ArrayList<FileDescriptor> readFiles(JsonReader in) throws IOException
+		{
+			if (in.peek() == JsonToken.NULL)
+			{
+				in.nextNull();
+				return null;
+			}
+
+			ArrayList<FileDescriptor> files = new ArrayList<>();
+			in.beginArray();
+
+			while (in.hasNext())
+			{
+				files.add(FILE_DESCRIPTOR.read(in));
+			}
+
+			in.endArray();
+			return files;
+		}
+	}
+
+	/**
+	 * Reads a {@link StormApp} from either its own fields, or an entry of {@code data/identifiers.json}, in which case
+	 * the package name is read from {@code android.packageName} and the app ID is the key of the entry
+	 */
+	private static class StormAppTypeAdapter extends TypeAdapter<StormApp>
+	{
+		@Override public void write(JsonWriter out, StormApp value) throws IOException
+		{
+			if (value == null)
+			{
+				out.nullValue();
+				return;
+			}
+
+			out.beginObject();
+			out.name("appId").value(value.getAppId());
+			out.name("packageName").value(value.getPackageName());
+
+			if (value.getName() != null)
+			{
+				out.name("name").beginObject();
+				for (Map.Entry<String, Object> entry : value.getName().entrySet())
+				{
+					out.name(entry.getKey()).value(entry.getValue() == null ? null : entry.getValue().toString());
+				}
+				out.endObject();
+			}
+
+			out.endObject();
+		}
+
+		@Override public StormApp read(JsonReader in) throws IOException
+		{
+			if (in.peek() == JsonToken.NULL)
+			{
+				in.nextNull();
+				return null;
+			}
+
+			StormApp app = new StormApp();
+			in.beginObject();
+
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "appId":
+					{
+						app.setAppId(nextStringOrNull(in));
+						break;
+					}
+					case "packageName":
+					{
+						app.setPackageName(nextStringOrNull(in));
+						break;
+					}
+					case "android":
+					{
+						app.setPackageName(readPackageName(in));
+						break;
+					}
+					case "name":
+					{
+						app.setRawName(readRawNames(in));
+						break;
+					}
+					default:
+					{
+						in.skipValue();
+						break;
+					}
+				}
+			}
+
+			in.endObject();
+			return app;
+		}
+
+		private String readPackageName(JsonReader in) throws IOException
+		{
+			if (in.peek() != JsonToken.BEGIN_OBJECT)
+			{
+				in.skipValue();
+				return null;
+			}
+
+			String packageName = null;
+			in.beginObject();
+
+			while (in.hasNext())
+			{
+				if ("packageName".equals(in.nextName()))
+				{
+					packageName = nextStringOrNull(in);
+				}
+				else
+				{
+					in.skipValue();
+				}
+			}
+
+			in.endObject();
+			return packageName;
+		}
+
+		/**
+		 * Reads the names object as json, so {@link StormApp} only decodes the locales that are requested. The object is
+		 * copied token by token rather than built into a tree.
+		 */
+		private String readRawNames(JsonReader in) throws IOException
+		{
+			if (in.peek() != JsonToken.BEGIN_OBJECT)
+			{
+				in.skipValue();
+				return null;
+			}
+
+			StringWriter json = new StringWriter();
+			JsonWriter out = new JsonWriter(json);
+			int depth = 0;
+
+			do
+			{
+				switch (in.peek())
+				{
+					case BEGIN_OBJECT:
+					{
+						in.beginObject();
+						out.beginObject();
+						depth++;
+						break;
+					}
+					case END_OBJECT:
+					{
+						in.endObject();
+						out.endObject();
+						depth--;
+						break;
+					}
+					case BEGIN_ARRAY:
+					{
+						in.beginArray();
+						out.beginArray();
+						depth++;
+						break;
+					}
+					case END_ARRAY:
+					{
+						in.endArray();
+						out.endArray();
+						depth--;
+						break;
+					}
+					case NAME:
+					{
+						out.name(in.nextName());
+						break;
+					}
+					case STRING:
+					{
+						out.value(in.nextString());
+						break;
+					}
+					case NUMBER:
+					{
+						out.jsonValue(in.nextString());
+						break;
+					}
+					case BOOLEAN:
+					{
+						out.value(in.nextBoolean());
+						break;
+					}
+					case NULL:
+					{
+						in.nextNull();
+						out.nullValue();
+						break;
+					}
+					default:
+					{
+						in.skipValue();
+						break;
+					}
+				}
+			}
+			while (depth > 0);
+
+			out.flush();
+			return json.toString();
+		}
+	}
+
+	private static String nextStringOrNull(JsonReader in) throws IOException
+	{
+		JsonToken token = in.peek();
+
+		if (token == JsonToken.STRING || token == JsonToken.NUMBER)
+		{
+			return in.nextString();
+		}
+
+		in.skipValue();
+		return null;
+	}
+}
@@ -0,0 +1,232 @@
+package com.cube.storm.content.lib.parser;
+
+import android.content.ComponentCallbacks2;
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.content.lib.helper.ManifestCache;
+import com.cube.storm.content.lib.helper.ManifestIndex;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Least recently used cache of objects built by {@link BundleBuilder#build(Uri, Class)}, bounded by the size of the
+ * json files the objects were built from.
+ * <p/>
+ * Only {@code cache://} files listed in the manifest of the deployed content are cached. Each entry is keyed by the Uri
+ * and the class it was built as, and stores the hash of the file it was built from. An entry is discarded as soon as
+ * the deployed manifest lists a different hash for its file, so a delta only invalidates the files it changes.
+ * <p/>
+ * Enable the cache with {@link com.cube.storm.ContentSettings.Builder#parsedObjectCache(long)}.
+ */
+public class ParsedObjectCache
+{
+	private final long maxBytes;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+	private long sizeBytes;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	/**
+	 * @param maxBytes The maximum total size of the json files of the cached objects
+	 */
+	public ParsedObjectCache(long maxBytes)
+	{
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Gets the hash of a file in the deployed manifest
+	 *
+	 * @param fileUri The file Uri
+	 *
+	 * @return The hash, or null if the file is not a {@code cache://} file listed in the deployed or bundled manifest
+	 */
+	@Nullable
+	public static String getFileHash(@NonNull Uri fileUri)
+	{
+		if (!"cache".equalsIgnoreCase(fileUri.getScheme()))
+		{
+			return null;
+		}
+
+		ManifestIndex index = ManifestCache.getInstance().getActiveIndex();
+		return index == null ? null : index.getHash(getRelativePath(fileUri));
+	}
+
+	/**
+	 * @param fileUri The file Uri the object was built from
+	 * @param hash The current hash of the file, from {@link #getFileHash(Uri)}
+	 * @param outClass The class the object was built as
+	 *
+	 * @return The cached object, or null if it is not cached or was built from a different version of the file
+	 */
+	@Nullable
+	public synchronized <T> T get(@NonNull Uri fileUri, @NonNull String hash, @NonNull Class<T> outClass)
+	{
+		String key = getKey(fileUri, outClass);
+		Entry entry = entries.get(key);
+
+		if (entry != null && !entry.hash.equals(hash))
+		{
+			remove(key);
+			entry = null;
+		}
+
+		if (entry == null)
+		{
+			missCount++;
+			return null;
+		}
+
+		hitCount++;
+		return outClass.cast(entry.value);
+	}
+
+	/**
+	 * Caches an object, evicting the least recently used objects if the cache is full
+	 *
+	 * @param fileUri The file Uri the object was built from
+	 * @param hash The hash of the file, from {@link #getFileHash(Uri)}
+	 * @param outClass The class the object was built as
+	 * @param value The object
+	 * @param sizeBytes The size of the file the object was built from
+	 */
+	public synchronized <T> void put(@NonNull Uri fileUri, @NonNull String hash, @NonNull Class<T> outClass, @NonNull T value, long sizeBytes)
+	{
+		if (sizeBytes > maxBytes)
+		{
+			return;
+		}
+
+		String key = getKey(fileUri, outClass);
+		remove(key);
+
+		entries.put(key, new Entry(getRelativePath(fileUri), hash, value, sizeBytes));
+		this.sizeBytes += sizeBytes;
+
+		trimToSize(maxBytes);
+	}
+
+	/**
+	 * Removes every object built from a file whose hash in {@param index} has changed, or which is no longer listed
+	 *
+	 * @param index The index of the newly deployed content, or null to remove every object
+	 */
+	public synchronized void invalidateChangedFiles(@Nullable ManifestIndex index)
+	{
+		Iterator<Entry> iterator = entries.values().iterator();
+
+		while (iterator.hasNext())
+		{
+			Entry entry = iterator.next();
+
+			if (index == null || !entry.hash.equals(index.getHash(entry.path)))
+			{
+				sizeBytes -= entry.sizeBytes;
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Evicts objects in response to {@link ComponentCallbacks2#onTrimMemory(int)}. The cache is emptied when the app is
+	 * in the background or memory is critically low, and halved when memory is running low or the UI is hidden.
+	 *
+	 * @param level The trim memory level
+	 */
+	public synchronized void trimMemory(int level)
+	{
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL)
+		{
+			evictAll();
+		}
+		else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+		{
+			trimToSize(sizeBytes / 2);
+		}
+	}
+
+	/**
+	 * Removes every object from the cache
+	 */
+	public synchronized void evictAll()
+	{
+		trimToSize(-1);
+	}
+
+	public synchronized long getHitCount()
+	{
+		return hitCount;
+	}
+
+	public synchronized long getMissCount()
+	{
+		return missCount;
+	}
+
+	public synchronized long getEvictionCount()
+	{
+		return evictionCount;
+	}
+
+	/**
+	 * @return The total size of the json files of the cached objects
+	 */
+	public synchronized long getSizeBytes()
+	{
+		return sizeBytes;
+	}
+
+	private void trimToSize(long targetBytes)
+	{
+		Iterator<Entry> iterator = entries.values().iterator();
+
+		while (sizeBytes > targetBytes && iterator.hasNext())
+		{
+			Entry entry = iterator.next();
+			sizeBytes -= entry.sizeBytes;
+			evictionCount++;
+			iterator.remove();
+		}
+	}
+
+	private void remove(String key)
+	{
+		Entry entry = entries.remove(key);
+
+		if (entry != null)
+		{
+			sizeBytes -= entry.sizeBytes;
+		}
+	}
+
+	private static String getKey(Uri fileUri, Class<?> outClass)
+	{
+		return fileUri.toString() + "#" + outClass.getName();
+	}
+
+	private static String getRelativePath(Uri fileUri)
+	{
+		return fileUri.getHost() + fileUri.getPath();
+	}
+
+	private static class Entry
+	{
+		private final String path;
+		private final String hash;
+		private final Object value;
+		private final long sizeBytes;
+
+		private Entry(String path, String hash, Object value, long sizeBytes)
+		{
+			this.path = path;
+			this.hash = hash;
+			this.value = value;
+			this.sizeBytes = sizeBytes;
+		}
+	}
+}
@@ -46,6 +46,16 @@ public class PolicyEnforcingUpdateManager implements UpdateManager
 		return delegate.checkForUpdates(lastUpdate);
 	}
 
+	@Override
+	public UpdateContentRequest checkForFileUpdates()
+	{
+		if (!ContentSettings.getInstance().getPolicyManager().canUpdate())
+		{
+			return UpdateContentRequest.fileDiff(Observable.error(new IllegalStateException("Not connected to wifi")));
+		}
+		return delegate.checkForFileUpdates();
+	}
+
 	@Override
 	public UpdateContentRequest downloadUpdates(@NonNull String endpoint)
 	{
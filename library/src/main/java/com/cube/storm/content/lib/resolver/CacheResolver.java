@@ -2,21 +2,33 @@ package com.cube.storm.content.lib.resolver;
 
 import android.net.Uri;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.cube.storm.ContentSettings;
+import com.cube.storm.content.lib.Constants;
+import com.cube.storm.content.lib.helper.ManifestCache;
+import com.cube.storm.content.lib.helper.ManifestIndex;
 import com.cube.storm.util.lib.resolver.Resolver;
 
 import java.io.File;
 import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Resolves a `cache://file/path` Uri into its actual path, either a `assets://file/path` or
  * `file://file/path`.
  * <p/>
- * Used when resolving a uri from Storm content (default scheme is {@code cache://}. It first checks the local cache directory
- * found in {@link com.cube.storm.ContentSettings#storagePath} for the file, and if it does not exist, will fallback to the
- * assets bundle path.
+ * Used when resolving a uri from Storm content (default scheme is {@code cache://}. It first checks the active content directory
+ * provided by {@link com.cube.storm.content.lib.manager.DeploymentManager#getContentFile(String)} for the file, and if it does
+ * not exist, will fallback to the assets bundle path.
+ * <p/>
+ * Resolved Uris, including assets fallbacks, are kept in a least recently used cache until the next deployment. When a
+ * bundle is deployed, the files in its {@link ManifestIndex} are resolved in the background, pages, data and languages
+ * before content, until half of the cache is filled, so most lookups are a single map lookup.
  * <p/>
  * Access this class via {@link com.cube.storm.ContentSettings#getUriResolvers()}. Do not instantiate this class directly.
  *
@@ -25,38 +37,167 @@ import java.io.InputStream;
  */
 public class CacheResolver extends Resolver
 {
+	/**
+	 * Default maximum number of resolved Uris kept in memory
+	 */
+	public static final int DEFAULT_MAX_CACHED_URIS = 16384;
+
+	private static final ExecutorService prefillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "storm-resolution-cache");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final int maxCachedUris;
+	private volatile Resolutions resolutions;
+
+	public CacheResolver()
+	{
+		this(DEFAULT_MAX_CACHED_URIS);
+	}
+
+	/**
+	 * @param maxCachedUris The maximum number of resolved Uris to keep in memory. The least recently used Uri is evicted
+	 * once the cache is full
+	 */
+	public CacheResolver(int maxCachedUris)
+	{
+		this.maxCachedUris = maxCachedUris;
+		this.resolutions = new Resolutions(-1, maxCachedUris);
+	}
+
 	@Override public Uri resolveUri(@NonNull Uri uri)
 	{
 		if ("cache".equalsIgnoreCase(uri.getScheme()))
 		{
-			File f = new File(ContentSettings.getInstance().getStoragePath() + "/" + uri.getHost() + "/" + uri.getPath());
+			Resolutions current = getResolutions();
+			// keyed by the decoded path, so differently encoded Uris of a file share an entry with the prefilled one
+			String key = uri.getHost() + uri.getPath();
+			Uri resolved = current.get(key);
+
+			if (resolved == null)
+			{
+				resolved = resolveCacheUri(uri.getHost(), uri.getPath(), ManifestCache.getInstance().getActiveIndex());
+
+				if (resolved != null)
+				{
+					current.put(key, resolved);
+				}
+			}
+
+			return resolved;
+		}
+
+		return null;
+	}
 
-			if (f.exists())
+	/**
+	 * Gets the resolutions for the deployed content, replacing them if the content has changed since they were created
+	 */
+	private Resolutions getResolutions()
+	{
+		int generation = ManifestCache.getInstance().getGeneration();
+		Resolutions current = resolutions;
+
+		if (current.generation != generation)
+		{
+			synchronized (this)
 			{
-				return Uri.fromFile(f);
+				current = resolutions;
+
+				if (current.generation != generation)
+				{
+					current = new Resolutions(generation, maxCachedUris);
+					resolutions = current;
+
+					Resolutions prefill = current;
+					prefillExecutor.execute(() -> prefill(prefill));
+				}
 			}
-			else
+		}
+
+		return current;
+	}
+
+	/**
+	 * Resolves the files in the index of the deployed content, so they can be resolved without touching the file system.
+	 * Pages, data and languages are resolved before content, and only half of the cache is filled so files looked up
+	 * later can still be cached without evicting each other.
+	 */
+	private void prefill(Resolutions target)
+	{
+		ManifestIndex index = ManifestCache.getInstance().getActiveIndex();
+
+		if (index == null)
+		{
+			return;
+		}
+
+		int limit = maxCachedUris / 2;
+		int prefilled = 0;
+		int size = index.size();
+
+		for (int pass = 0; pass < 2; pass++)
+		{
+			for (int position = 0; position < size && prefilled < limit; position++)
 			{
-				try
+				// stop if the content changed whilst the index was being read
+				if (resolutions != target)
+				{
+					return;
+				}
+
+				String folder = index.getFolder(position);
+
+				if (Constants.FOLDER_CONTENT.equals(folder) != (pass == 1))
 				{
-					String path = "";
+					continue;
+				}
 
-					if (!TextUtils.isEmpty(uri.getHost()))
-					{
-						path += uri.getHost();
-					}
+				Uri resolved = resolveCacheUri(folder, "/" + index.getName(position), index);
 
-					if (!TextUtils.isEmpty(uri.getPath()))
-					{
-						path += uri.getPath();
-					}
+				if (resolved != null && target.putIfAbsent(index.getPath(position), resolved))
+				{
+					prefilled++;
+				}
+			}
+		}
+	}
+
+	@Nullable
+	private Uri resolveCacheUri(String host, String path, @Nullable ManifestIndex index)
+	{
+		String relativePath = host + path;
+		File f = ContentSettings.getInstance().getDeploymentManager().getContentFile(relativePath);
 
-					return Uri.parse("assets://" + path);
+		// bundle files are looked up in the index of the deployed manifest rather than on disk
+		boolean exists = index != null && index.covers(relativePath) ? index.isPresent(relativePath) : f.exists();
+
+		if (exists)
+		{
+			return Uri.fromFile(f);
+		}
+		else
+		{
+			try
+			{
+				String assetPath = "";
+
+				if (!TextUtils.isEmpty(host))
+				{
+					assetPath += host;
 				}
-				catch (Exception e)
+
+				if (!TextUtils.isEmpty(path))
 				{
-					e.printStackTrace();
+					assetPath += path;
 				}
+
+				return Uri.parse("assets://" + assetPath);
+			}
+			catch (Exception e)
+			{
+				e.printStackTrace();
 			}
 		}
 
@@ -86,4 +227,49 @@ public class CacheResolver extends Resolver
 
 		return null;
 	}
+
+	/**
+	 * Uris resolved for one generation of the deployed content
+	 */
+	private static class Resolutions
+	{
+		private final int generation;
+		private final LinkedHashMap<String, Uri> uris;
+
+		private Resolutions(int generation, final int maxCachedUris)
+		{
+			this.generation = generation;
+			this.uris = new LinkedHashMap<String, Uri>(64, 0.75f, true)
+			{
+				@Override protected boolean removeEldestEntry(Map.Entry<String, Uri> eldest)
+				{
+					return size() > maxCachedUris;
+				}
+			};
+		}
+
+		private synchronized Uri get(String key)
+		{
+			return uris.get(key);
+		}
+
+		private synchronized void put(String key, Uri uri)
+		{
+			uris.put(key, uri);
+		}
+
+		/**
+		 * @return true if the Uri was added, false if the key was already resolved
+		 */
+		private synchronized boolean putIfAbsent(String key, Uri uri)
+		{
+			if (uris.containsKey(key))
+			{
+				return false;
+			}
+
+			uris.put(key, uri);
+			return true;
+		}
+	}
 }
@@ -28,6 +28,7 @@ import java.util.UUID;
 
 import static com.cube.storm.content.lib.worker.ContentUpdateWorker.UpdateType.DELTA;
 import static com.cube.storm.content.lib.worker.ContentUpdateWorker.UpdateType.DIRECT_DOWNLOAD;
+import static com.cube.storm.content.lib.worker.ContentUpdateWorker.UpdateType.FILE_DIFF;
 import static com.cube.storm.content.lib.worker.ContentUpdateWorker.UpdateType.FULL_BUNDLE;
 import static java.util.concurrent.TimeUnit.HOURS;
 
@@ -164,6 +165,18 @@ public class BackgroundWorkerUpdateManager implements UpdateManager
 		return updateContentRequest;
 	}
 
+	@Override
+	public UpdateContentRequest checkForFileUpdates()
+	{
+		OneTimeWorkRequest workRequest = createOneTimeWorkRequest(FILE_DIFF, null, null, null);
+		log(String.format("Enqueuing file update check (%s)", workRequest.getId().toString()));
+		workManager.enqueueUniqueWork(CONTENT_CHECK_WORK_NAME, ExistingWorkPolicy.REPLACE, workRequest);
+		Observable<UpdateContentProgress> progressObservable = createWorkObservable(workRequest.getId());
+		UpdateContentRequest updateContentRequest = UpdateContentRequest.fileDiff(progressObservable);
+		updates.onNext(updateContentRequest);
+		return updateContentRequest;
+	}
+
 	private Observable<UpdateContentProgress> createWorkObservable(UUID workId)
 	{
 		LiveData<WorkInfo> workInfoLiveData = workManager.getWorkInfoByIdLiveData(workId);
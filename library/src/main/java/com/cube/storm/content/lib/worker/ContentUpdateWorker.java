@@ -5,6 +5,7 @@ import androidx.annotation.NonNull;
 import androidx.work.Data;
 import androidx.work.RxWorker;
 import androidx.work.WorkerParameters;
+import com.cube.storm.content.lib.handler.IncompleteDownloadException;
 import com.cube.storm.content.lib.manager.DefaultUpdateManager;
 import com.cube.storm.content.lib.manager.UpdateManager;
 import com.cube.storm.content.model.UpdateContentRequest;
@@ -14,12 +15,13 @@ import timber.log.Timber;
 /**
  * Background worker responsible for performing a task relating to content updates.
  * <p />
- * It is possible to tell this worker to do one of 4 different tasks:
+ * It is possible to tell this worker to do one of 5 different tasks:
  * <ol>
  *     <li>Full bundle check and download</li>
  *     <li>Delta bundle check and download from specified timestamp</li>
  *     <li>Delta bundle check and download using timestamp from local bundle</li>
  *     <li>Direct bundle download using specified URL</li>
+ *     <li>File level update of the files whose hashes differ from the local manifest</li>
  * </ol>
  * <p />
  * The worker will emit progress updates based on the progress of the underlying task.
@@ -37,11 +39,17 @@ public class ContentUpdateWorker extends RxWorker
 
 	private static final long TIMESTAMP_UNINITIALIZED = 0L;
 
+	/**
+	 * Maximum number of times an interrupted download is retried before the work fails
+	 */
+	private static final int MAX_RESUME_ATTEMPTS = 5;
+
 	public enum UpdateType
 	{
 		FULL_BUNDLE,
 		DELTA,
-		DIRECT_DOWNLOAD
+		DIRECT_DOWNLOAD,
+		FILE_DIFF
 	}
 
 	private UpdateManager updateManager;
@@ -139,6 +147,11 @@ public class ContentUpdateWorker extends RxWorker
 				workJob = updateManager.downloadUpdates(updateEndpoint);
 				break;
 			}
+			case FILE_DIFF:
+			{
+				workJob = updateManager.checkForFileUpdates();
+				break;
+			}
 		}
 
 		if (workJob == null)
@@ -147,6 +160,8 @@ public class ContentUpdateWorker extends RxWorker
 			return Single.just(Result.failure());
 		}
 
+		workJob.getMetricsRecorder().setRetryCount(getRunAttemptCount());
+
 		return workJob
 			       .getProgress()
 			       .doOnNext(updateContentProgress -> this.setProgress(updateContentProgress.toWorkerData()))
@@ -154,9 +169,17 @@ public class ContentUpdateWorker extends RxWorker
 			       .toSingleDefault(Result.success())
 			       .doOnSuccess(result -> log("Success"))
 			       .doOnError(this::log)
-			       .onErrorReturn(err -> Result.failure(new Data.Builder()
-				                                            .putString("error", err.getMessage())
-				                                            .build()));
+			       .onErrorReturn(err -> {
+				       if (err instanceof IncompleteDownloadException && getRunAttemptCount() < MAX_RESUME_ATTEMPTS)
+				       {
+					       log("Retrying interrupted download");
+					       return Result.retry();
+				       }
+
+				       return Result.failure(new Data.Builder()
+					                             .putString("error", err.getMessage())
+					                             .build());
+			       });
 	}
 
 	@Override
@@ -164,6 +187,9 @@ public class ContentUpdateWorker extends RxWorker
 	{
 		super.onStopped();
 		log("stopped");
+
+		// Cancelling the request keeps the partial download journaled so the retry can resume it
+		updateManager.cancelPendingRequests();
 	}
 
 	private void log(String s)
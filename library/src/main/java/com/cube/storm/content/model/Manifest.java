@@ -37,6 +37,23 @@ public class Manifest
 	 */
 	@Getter protected long timestamp;
 
+	public Manifest()
+	{
+	}
+
+	/**
+	 * Creates a manifest from its parsed fields. Used by {@link com.cube.storm.content.lib.parser.ContentTypeAdapters},
+	 * as manifests are shared by {@link com.cube.storm.content.lib.helper.ManifestCache} and must not change once built
+	 */
+	public Manifest(long timestamp, ArrayList<FileDescriptor> content, ArrayList<FileDescriptor> pages, ArrayList<FileDescriptor> languages, ArrayList<FileDescriptor> data)
+	{
+		this.timestamp = timestamp;
+		this.content = content;
+		this.pages = pages;
+		this.languages = languages;
+		this.data = data;
+	}
+
 	/**
 	 * File descriptor class. Has the path of the file and its hash. Used to check integrity of the bundle
 	 */
@@ -44,5 +61,15 @@ public class Manifest
 	{
 		@Getter protected String src;
 		@Getter protected String hash;
+
+		public FileDescriptor()
+		{
+		}
+
+		public FileDescriptor(String src, String hash)
+		{
+			this.src = src;
+			this.hash = hash;
+		}
 	}
 }
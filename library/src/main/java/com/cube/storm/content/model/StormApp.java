@@ -1,6 +1,15 @@
 package com.cube.storm.content.model;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.StringReader;
+import java.util.HashMap;
 import java.util.Map;
 
 import lombok.Getter;
@@ -10,13 +19,144 @@ import lombok.Setter;
  * Basic model for storm app.
  * <p/>
  * A basic data struct for the different apps in the data/identifiers.json file.
+ * <p/>
+ * The localised names of the app are kept as the json object from the identifiers file, and are only decoded when
+ * requested. {@link #getName(String)} decodes a single locale, and remembers the last few locales it decoded.
  *
  * @author Callum Taylor
  * @project LightningContent
  */
 public class StormApp implements Serializable
 {
+	/**
+	 * Maximum number of locales remembered by {@link #getName(String)}
+	 */
+	private static final int MAX_CACHED_LOCALES = 4;
+
 	@Getter @Setter private String appId;
 	@Getter @Setter private String packageName;
-	@Getter @Setter private Map<String, Object> name;
+
+	/**
+	 * The json object of localised names, keyed by locale
+	 */
+	@Getter private String rawName;
+
+	private Map<String, Object> name;
+	private Map<String, String> localeNames;
+
+	/**
+	 * Sets the json object of localised names, replacing any decoded names
+	 *
+	 * @param rawName The json object of names keyed by locale, for example {@code {"en": "First aid"}}
+	 */
+	public synchronized void setRawName(@Nullable String rawName)
+	{
+		this.rawName = rawName;
+		this.name = null;
+		this.localeNames = null;
+	}
+
+	/**
+	 * @return Every localised name keyed by locale, decoding them if they have not been decoded yet
+	 */
+	@Nullable
+	public synchronized Map<String, Object> getName()
+	{
+		if (name == null && rawName != null)
+		{
+			name = new HashMap<>();
+			readNames(null, name);
+		}
+
+		return name;
+	}
+
+	public synchronized void setName(@Nullable Map<String, Object> name)
+	{
+		this.name = name;
+		this.rawName = null;
+		this.localeNames = null;
+	}
+
+	/**
+	 * Gets the name of the app for a single locale, without decoding the other locales
+	 *
+	 * @param locale The locale key used in the identifiers file, for example {@code en}
+	 *
+	 * @return The name, or null if there is no name for the locale
+	 */
+	@Nullable
+	public synchronized String getName(@NonNull String locale)
+	{
+		if (name != null)
+		{
+			Object value = name.get(locale);
+			return value == null ? null : value.toString();
+		}
+
+		if (rawName == null)
+		{
+			return null;
+		}
+
+		if (localeNames == null)
+		{
+			localeNames = new HashMap<>(MAX_CACHED_LOCALES * 2);
+		}
+		else if (localeNames.containsKey(locale))
+		{
+			return localeNames.get(locale);
+		}
+
+		Map<String, Object> found = new HashMap<>(2);
+		readNames(locale, found);
+		String value = found.isEmpty() ? null : found.get(locale).toString();
+
+		if (localeNames.size() >= MAX_CACHED_LOCALES)
+		{
+			localeNames.clear();
+		}
+
+		localeNames.put(locale, value);
+		return value;
+	}
+
+	/**
+	 * Reads names from {@link #rawName} into {@param names}
+	 *
+	 * @param locale The only locale to read, or null to read every locale
+	 */
+	private void readNames(@Nullable String locale, Map<String, Object> names)
+	{
+		try (JsonReader reader = new JsonReader(new StringReader(rawName)))
+		{
+			reader.beginObject();
+
+			while (reader.hasNext())
+			{
+				String key = reader.nextName();
+				boolean wanted = locale == null || locale.equals(key);
+
+				if (wanted && (reader.peek() == JsonToken.STRING || reader.peek() == JsonToken.NUMBER))
+				{
+					names.put(key, reader.nextString());
+
+					if (locale != null)
+					{
+						return;
+					}
+				}
+				else
+				{
+					reader.skipValue();
+				}
+			}
+
+			reader.endObject();
+		}
+		catch (IOException | IllegalStateException e)
+		{
+			e.printStackTrace();
+		}
+	}
 }
@@ -0,0 +1,97 @@
+package com.cube.storm.content.model;
+
+import androidx.annotation.NonNull;
+
+import com.cube.storm.content.lib.worker.ContentUpdateWorker;
+import com.cube.storm.content.model.UpdateContentProgress.Phase;
+
+import java.util.Map;
+
+import lombok.Value;
+
+/**
+ * Summary of how long each phase of an {@link UpdateContentRequest} took and how much data it moved, available from
+ * {@link UpdateContentRequest#getMetrics()} once the request has finished
+ * <p/>
+ * Times are wall clock times in milliseconds. A phase that was entered more than once, such as {@link Phase#DOWNLOADING}
+ * for each file of a file update, is the total of each time it was entered.
+ */
+@Value
+public class UpdateContentMetrics
+{
+	/**
+	 * The ID of the request, from {@link UpdateContentRequest#getId()}
+	 */
+	String requestId;
+
+	ContentUpdateWorker.UpdateType updateType;
+
+	/**
+	 * Whether the request completed, either by deploying an update or finding there was none
+	 */
+	boolean successful;
+
+	/**
+	 * Time from the request being made until it completed or failed
+	 */
+	long totalTime;
+
+	/**
+	 * Time spent in each phase the request entered
+	 */
+	Map<Phase, Long> phaseTimes;
+
+	/**
+	 * Bytes received from the server, excluding the request that checked for an update
+	 */
+	long bytesDownloaded;
+
+	/**
+	 * Uncompressed bytes written by extracting the downloaded bundle
+	 */
+	long bytesExtracted;
+
+	/**
+	 * Files checked against the manifest by the {@link com.cube.storm.content.lib.manager.BundleIntegrityManager}
+	 */
+	long filesHashed;
+
+	/**
+	 * Bytes of the bundle handed to the {@link com.cube.storm.content.lib.manager.DeploymentManager}
+	 */
+	long bytesDeployed;
+
+	/**
+	 * Number of times the update was attempted before this request, for example by resuming an interrupted download
+	 */
+	int retryCount;
+
+	/**
+	 * @param phase The phase
+	 *
+	 * @return The time spent in the phase, or 0 if the request did not enter it
+	 */
+	public long getPhaseTime(@NonNull Phase phase)
+	{
+		Long time = phaseTimes.get(phase);
+		return time == null ? 0 : time;
+	}
+
+	/**
+	 * @return The number of files checked per second during {@link Phase#VERIFYING}, or 0 if no files were checked
+	 */
+	public double getFilesHashedPerSecond()
+	{
+		long time = getPhaseTime(Phase.VERIFYING);
+		return filesHashed == 0 ? 0 : filesHashed * 1000.0 / Math.max(time, 1);
+	}
+
+	/**
+	 * @return The number of bytes downloaded per second during {@link Phase#DOWNLOADING}, or 0 if nothing was downloaded
+	 */
+	public double getDownloadBytesPerSecond()
+	{
+		long time = getPhaseTime(Phase.DOWNLOADING);
+		return bytesDownloaded == 0 ? 0 : bytesDownloaded * 1000.0 / Math.max(time, 1);
+	}
+}
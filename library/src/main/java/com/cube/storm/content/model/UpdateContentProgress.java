@@ -11,27 +11,45 @@ public class UpdateContentProgress
 	private static final String WORKER_DATA_KEY_PROGRESS = "progress";
 	private static final String WORKER_DATA_KEY_PROGRESS_MAX = "progress_max";
 
+	// progress is immutable, so the events without a count are shared rather than allocated for every update
+	private static final UpdateContentProgress WAITING = new UpdateContentProgress(Phase.WAITING, 0, 0);
+	private static final UpdateContentProgress CHECKING = new UpdateContentProgress(Phase.CHECKING, 0, 0);
+	private static final UpdateContentProgress DOWNLOADING = new UpdateContentProgress(Phase.DOWNLOADING, 0, 0);
+	private static final UpdateContentProgress VERIFYING = new UpdateContentProgress(Phase.VERIFYING, 0, 0);
+	private static final UpdateContentProgress DEPLOYING = new UpdateContentProgress(Phase.DEPLOYING, 0, 0);
+
 	@NonNull
 	public static UpdateContentProgress waiting()
 	{
-		return new UpdateContentProgress(Phase.WAITING, 0, 0);
+		return WAITING;
 	}
 
 	@NonNull
 	public static UpdateContentProgress checking()
 	{
-		return new UpdateContentProgress(Phase.CHECKING, 0, 0);
+		return CHECKING;
 	}
 
 	@NonNull
 	public static UpdateContentProgress deploying()
 	{
-		return new UpdateContentProgress(Phase.DEPLOYING, 0, 0);
+		return DEPLOYING;
+	}
+
+	@NonNull
+	public static UpdateContentProgress deploying(long stepsCompleted, long stepsTotal)
+	{
+		return new UpdateContentProgress(Phase.DEPLOYING, stepsCompleted, stepsTotal);
 	}
 
 	@NonNull
 	public static UpdateContentProgress downloading(long bytesDownloaded, long bytesTotal)
 	{
+		if (bytesDownloaded == 0 && bytesTotal == 0)
+		{
+			return DOWNLOADING;
+		}
+
 		return new UpdateContentProgress(Phase.DOWNLOADING, bytesDownloaded, bytesTotal);
 	}
 
@@ -47,7 +65,13 @@ public class UpdateContentProgress
 	@NonNull
 	public static UpdateContentProgress verifying()
 	{
-		return new UpdateContentProgress(Phase.VERIFYING, 0, 0);
+		return VERIFYING;
+	}
+
+	@NonNull
+	public static UpdateContentProgress verifying(long filesVerified, long filesTotal)
+	{
+		return new UpdateContentProgress(Phase.VERIFYING, filesVerified, filesTotal);
 	}
 
 	public enum Phase
@@ -4,8 +4,10 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.cube.storm.ContentSettings;
 import com.cube.storm.content.lib.Environment;
+import com.cube.storm.content.lib.helper.UpdateMetricsRecorder;
 import com.cube.storm.content.lib.worker.ContentUpdateWorker;
 import io.reactivex.Observable;
+import io.reactivex.Single;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Value;
@@ -19,13 +21,23 @@ public class UpdateContentRequest
 		return Long.toString(System.currentTimeMillis());
 	}
 
+	private static UpdateContentRequest create(
+		@NonNull ContentUpdateWorker.UpdateType updateType,
+		@Nullable Long buildTimestamp,
+		@Nullable Long updateTimestamp,
+		@NonNull Observable<UpdateContentProgress> progress
+	)
+	{
+		String id = generateId();
+		return new UpdateContentRequest(id, updateType, buildTimestamp, updateTimestamp, progress, new UpdateMetricsRecorder(id, updateType, progress));
+	}
+
 	public static UpdateContentRequest deltaUpdate(
 		long contentTimestamp,
 		@NonNull Observable<UpdateContentProgress> progress
 	)
 	{
-		String id = generateId();
-		return new UpdateContentRequest(id, ContentUpdateWorker.UpdateType.DELTA, null, contentTimestamp, progress);
+		return create(ContentUpdateWorker.UpdateType.DELTA, null, contentTimestamp, progress);
 	}
 
 	public static UpdateContentRequest fullBundle(
@@ -33,20 +45,22 @@ public class UpdateContentRequest
 		@NonNull Observable<UpdateContentProgress> progress
 	)
 	{
-		String id = generateId();
-		return new UpdateContentRequest(id, ContentUpdateWorker.UpdateType.FULL_BUNDLE, buildTimestamp, null, progress);
+		return create(ContentUpdateWorker.UpdateType.FULL_BUNDLE, buildTimestamp, null, progress);
 	}
 
 	public static UpdateContentRequest deltaUpdateFromLocalContent(@NonNull Observable<UpdateContentProgress> progress)
 	{
-		String id = generateId();
-		return new UpdateContentRequest(id, ContentUpdateWorker.UpdateType.DELTA, null, null, progress);
+		return create(ContentUpdateWorker.UpdateType.DELTA, null, null, progress);
+	}
+
+	public static UpdateContentRequest fileDiff(@NonNull Observable<UpdateContentProgress> progress)
+	{
+		return create(ContentUpdateWorker.UpdateType.FILE_DIFF, null, null, progress);
 	}
 
 	public static UpdateContentRequest directDownload(@NonNull Observable<UpdateContentProgress> progress)
 	{
-		String id = generateId();
-		return new UpdateContentRequest(id, ContentUpdateWorker.UpdateType.DIRECT_DOWNLOAD, null, null, progress);
+		return create(ContentUpdateWorker.UpdateType.DIRECT_DOWNLOAD, null, null, progress);
 	}
 
 	String id;
@@ -54,5 +68,20 @@ public class UpdateContentRequest
 	Long buildTimestamp;
 	Long updateTimestamp;
 	Observable<UpdateContentProgress> progress;
+
+	/**
+	 * Records the metrics of the request. Update managers add the figures that are not reported by {@link #progress}.
+	 */
+	UpdateMetricsRecorder metricsRecorder;
+
 	Environment environment = ContentSettings.getInstance().getContentEnvironment();
+
+	/**
+	 * @return The timings and throughput of the request, emitted once it has completed or failed
+	 */
+	@NonNull
+	public Single<UpdateContentMetrics> getMetrics()
+	{
+		return metricsRecorder.getMetrics();
+	}
 }
@@ -0,0 +1,92 @@
+package com.cube.storm.content
+
+import com.github.luben.zstd.ZstdInputStream
+import org.gradle.api.resources.MissingResourceException
+import org.gradle.api.resources.ReadableResource
+import org.gradle.api.resources.ResourceException
+
+import java.util.zip.GZIPInputStream
+
+/**
+ * A downloaded bundle archive, decoded with the codec it was compressed with so it can be unpacked with
+ * {@code project.tarTree()}. The codec is picked from the extension of the bundle url, otherwise it is detected from
+ * the first bytes of the archive, as the runtime {@code BundleCodecs} does. Archives are gzipped unless they are
+ * recognised as zstd.
+ */
+class BundleArchiveResource implements ReadableResource {
+
+	static final byte[] ZSTD_MAGIC = [0x28, 0xb5, 0x2f, 0xfd] as byte[]
+	static final String[] ZSTD_EXTENSIONS = [".tar.zst", ".tzst", ".zst"]
+
+	private final File archive
+	private final String url
+	private final File dictionary
+
+	/**
+	 * @param archive The downloaded archive, which doesn't have to exist until the resource is read
+	 * @param url The url the archive was downloaded from
+	 * @param dictionary The zstd dictionary the bundle was compressed with, or null
+	 */
+	BundleArchiveResource(File archive, String url, File dictionary) {
+		this.archive = archive
+		this.url = url
+		this.dictionary = dictionary
+	}
+
+	@Override
+	InputStream read() throws MissingResourceException, ResourceException {
+		if (!archive.exists()) {
+			throw new MissingResourceException(archive.toURI(), "Bundle archive ${archive} has not been downloaded")
+		}
+
+		InputStream compressed = new BufferedInputStream(new FileInputStream(archive), 8192)
+
+		try {
+			if (isZstd(compressed)) {
+				println "Unpacking zstd bundle${dictionary != null ? " with dictionary ${dictionary}" : ""}"
+				ZstdInputStream stream = new ZstdInputStream(compressed)
+
+				if (dictionary != null) {
+					stream.setDict(dictionary.bytes)
+				}
+
+				return stream
+			}
+
+			return new GZIPInputStream(compressed, 8192)
+		} catch (IOException e) {
+			compressed.close()
+			throw new ResourceException(archive.toURI(), "Could not read bundle archive ${archive}", e)
+		}
+	}
+
+	private boolean isZstd(InputStream compressed) {
+		String path = url.split("[?#]")[0].toLowerCase(Locale.US)
+
+		if (ZSTD_EXTENSIONS.any { extension -> path.endsWith(extension) }) {
+			return true
+		}
+
+		byte[] header = new byte[ZSTD_MAGIC.length]
+		compressed.mark(header.length)
+		int length = compressed.read(header)
+		compressed.reset()
+
+		return length == header.length && Arrays.equals(header, ZSTD_MAGIC)
+	}
+
+	@Override
+	String getDisplayName() {
+		return archive.path
+	}
+
+	@Override
+	URI getURI() {
+		return archive.toURI()
+	}
+
+	@Override
+	String getBaseName() {
+		return archive.name
+	}
+}
@@ -12,6 +12,12 @@ class StormExtension {
     Date bundleTimestamp = null
     Boolean obeyLandmark = null
 
+    /**
+     * Path of the zstd dictionary the bundle is compressed with, relative to the project directory, if the bundle is
+     * compressed with zstd and a dictionary
+     */
+    String bundleDictionary = ""
+
     /**
      * Whether or not the Storm bundle is included in the assembled app's assets directory
      */
@@ -48,7 +54,8 @@ class StormExtension {
                 obeyLandmark: this.obeyLandmark == null ? other.obeyLandmark : this.obeyLandmark,
                 bundleDownloadStrategy: this.bundleDownloadStrategy == null ? other.bundleDownloadStrategy : this.bundleDownloadStrategy,
                 authUsername: this.authUsername.isEmpty() ? other.authUsername : this.authUsername,
-                authPassword: this.authPassword.isEmpty() ? other.authPassword : this.authPassword
+                authPassword: this.authPassword.isEmpty() ? other.authPassword : this.authPassword,
+                bundleDictionary: this.bundleDictionary.isEmpty() ? other.bundleDictionary : this.bundleDictionary
         )
     }
 
@@ -58,6 +65,6 @@ class StormExtension {
 
     public String toString()
     {
-        return "Storm(apiBase=${apiBase}, apiVersion=${apiVersion}, appId=${appId}, orgId=${orgId}, orgName=${orgName}, bundleEnv=${bundleEnvironment}, bundleTimestamp=${bundleTimestamp}, obeyLandmark=${obeyLandmark}, bundleDownloadStrategy=${bundleDownloadStrategy}, authUsername=${authUsername}, authPassword=${authPassword}, url=${url})"
+        return "Storm(apiBase=${apiBase}, apiVersion=${apiVersion}, appId=${appId}, orgId=${orgId}, orgName=${orgName}, bundleEnv=${bundleEnvironment}, bundleTimestamp=${bundleTimestamp}, obeyLandmark=${obeyLandmark}, bundleDownloadStrategy=${bundleDownloadStrategy}, authUsername=${authUsername}, authPassword=${authPassword}, bundleDictionary=${bundleDictionary}, url=${url})"
     }
 }
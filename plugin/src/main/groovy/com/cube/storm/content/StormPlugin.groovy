@@ -155,7 +155,8 @@ class StormPlugin implements Plugin<Project> {
 
 						return false
 					}
-					from project.tarTree(project.resources.gzip(downloadTask.dest))
+					// the archive is gzipped by default, but may be compressed with zstd despite its file name
+					from project.tarTree(new BundleArchiveResource(downloadTask.dest, mergedStormConfig.url, mergedStormConfig.bundleDictionary.isEmpty() ? null : project.file(mergedStormConfig.bundleDictionary)))
 					into bundleUnpackDir
 				}
 